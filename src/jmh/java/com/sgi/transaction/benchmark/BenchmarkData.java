@@ -0,0 +1,45 @@
+package com.sgi.transaction.benchmark;
+
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.infrastructure.dto.TransactionRequest;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Builds the fixtures shared by the benchmarks, with every field a real transaction carries.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static Transaction transaction(int index) {
+        return Transaction.builder()
+                .id(UUID.randomUUID().toString())
+                .productId("product-" + (index % 10))
+                .clientId("client")
+                .cardId("card-" + (index % 100))
+                .type("DEPOSIT")
+                .status("COMPLETED")
+                .currency("PEN")
+                .amount(BigDecimal.valueOf(index, 2))
+                .commission(BigDecimal.valueOf(125, 2))
+                .balance(BigDecimal.valueOf(100_000L + index, 2))
+                .createdDate(Instant.parse("2024-01-01T00:00:00Z").plusSeconds(index * 60L))
+                .updatedDate(Instant.parse("2024-01-01T00:00:00Z").plusSeconds(index * 60L))
+                .build();
+    }
+
+    static TransactionRequest request() {
+        TransactionRequest request = new TransactionRequest("product", new BigDecimal("150.75"), "client");
+        request.setType(TransactionRequest.TypeEnum.DEPOSIT);
+        request.setStatus(TransactionRequest.StatusEnum.COMPLETED);
+        request.setCommission(1.25);
+        request.setCardId("card");
+        request.setCurrency("PEN");
+        request.setBalance(1000.0);
+        return request;
+    }
+}
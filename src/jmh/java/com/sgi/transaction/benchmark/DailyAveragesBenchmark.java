@@ -0,0 +1,115 @@
+package com.sgi.transaction.benchmark;
+
+import com.sgi.transaction.application.service.RequestCoalescer;
+import com.sgi.transaction.application.service.TransactionServiceImpl;
+import com.sgi.transaction.domain.model.DailyBalance;
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.domain.ports.out.DailyBalanceRepository;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.dto.AverageReportResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the daily average balance report inside the service, from the per day rows read from Mongo
+ * to the response. The rows come from an in-memory rollup, so only the JVM side is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DailyAveragesBenchmark {
+
+    private static final LocalDate START = LocalDate.of(2000, 1, 1);
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private TransactionServiceImpl transactionService;
+
+    private LocalDate end;
+
+    /**
+     * Builds a rollup of {@code rows} days spread over ten products.
+     */
+    @Setup
+    public void setUp() {
+        List<DailyBalance> dailyBalances = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            dailyBalances.add(DailyBalance.builder()
+                    .clientId("client")
+                    .productId("product-" + (row % 10))
+                    .day(START.plusDays(row / 10).toString())
+                    .sum(BigDecimal.valueOf(1_000_000L + row, 2))
+                    .count(3L)
+                    .min(BigDecimal.ONE)
+                    .max(BigDecimal.TEN)
+                    .build());
+        }
+        end = START.plusDays(rows / 10);
+        TransactionProperties properties = new TransactionProperties();
+        properties.getReports().setDailyBalanceRollup(true);
+        properties.getCoalescing().setEnabled(false);
+        transactionService = new TransactionServiceImpl(null, new InMemoryDailyBalanceRepository(dailyBalances), null,
+                properties, new RequestCoalescer(properties), null, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public AverageReportResponse dailyAverages() {
+        return transactionService.getDailyAverageBalancesForClient("client", START, end).block();
+    }
+
+    private static final class InMemoryDailyBalanceRepository implements DailyBalanceRepository {
+
+        private final List<DailyBalance> dailyBalances;
+
+        private InMemoryDailyBalanceRepository(List<DailyBalance> dailyBalances) {
+            this.dailyBalances = dailyBalances;
+        }
+
+        @Override
+        public Mono<Void> add(Transaction transaction) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> addAll(List<Transaction> transactions) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> subtract(Transaction transaction) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> subtractAll(List<Transaction> transactions) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Flux<DailyBalance> findByClientIdAndDayBetween(String clientId, LocalDate startDate, LocalDate endDate) {
+            return Flux.fromIterable(dailyBalances);
+        }
+    }
+}
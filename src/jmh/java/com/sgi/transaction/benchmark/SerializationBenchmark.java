@@ -0,0 +1,106 @@
+package com.sgi.transaction.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.sgi.transaction.infrastructure.config.JacksonConfig;
+import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.mapper.TransactionMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cost of writing a list of transactions with the ObjectMapper of {@link JacksonConfig}, as JSON and
+ * in the CBOR and Smile formats served by content negotiation, with and without gzip.
+ * The size of each payload is reported as the payloadBytes secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+
+    private List<TransactionResponse> transactions;
+
+    /**
+     * Builds the list of responses to write and the mapper of the format.
+     */
+    @Setup
+    public void setUp() {
+        objectMapper = switch (format) {
+            case "cbor" -> JacksonConfig.configure(new CBORMapper());
+            case "smile" -> JacksonConfig.configure(new SmileMapper());
+            default -> new JacksonConfig().objectMapper();
+        };
+        transactions = IntStream.range(0, size)
+                .mapToObj(BenchmarkData::transaction)
+                .map(TransactionMapper.INSTANCE::toTransactionResponse)
+                .toList();
+    }
+
+    /**
+     * Writes the list uncompressed.
+     */
+    @Benchmark
+    public byte[] writeList(Payload payload) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(transactions);
+        payload.payloadBytes = bytes.length;
+        return bytes;
+    }
+
+    /**
+     * Writes the list through gzip, as the server does for responses above the compression threshold.
+     */
+    @Benchmark
+    public byte[] writeListGzip(Payload payload) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            objectMapper.writeValue(gzip, transactions);
+        }
+        payload.payloadBytes = output.size();
+        return output.toByteArray();
+    }
+
+    /**
+     * Size of the last payload written, reported next to the throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+
+        public long payloadBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            payloadBytes = 0;
+        }
+    }
+}
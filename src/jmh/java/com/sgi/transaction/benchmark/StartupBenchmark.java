@@ -0,0 +1,82 @@
+package com.sgi.transaction.benchmark;
+
+import com.sgi.transaction.TransactionBackApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first request of the application: from the start of the context in a fresh JVM to the response
+ * of the first HTTP request. Every fork starts the application once, so the class loading and bean creation
+ * of a cold start are measured. The config server and Eureka are disabled, and Mongo is not needed to start.
+ * With {@code -p aot=true} the context is started from the classes generated by the aot profile:
+ * mvn -Paot,benchmark package exec:exec -Djmh.args="StartupBenchmark -p aot=true"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+    @Param({"false"})
+    private boolean aot;
+
+    private ConfigurableApplicationContext context;
+
+    /**
+     * Selects the reflective or the ahead-of-time processed context before it starts.
+     */
+    @Setup
+    public void setUp() {
+        System.setProperty("spring.aot.enabled", String.valueOf(aot));
+    }
+
+    /**
+     * Starts the application and waits for the response of its first request.
+     */
+    @Benchmark
+    public HttpStatusCode timeToFirstRequest() {
+        context = new SpringApplicationBuilder(TransactionBackApplication.class)
+                .main(TransactionBackApplication.class)
+                .run("--server.port=0",
+                        "--spring.cloud.config.enabled=false",
+                        "--spring.cloud.refresh.enabled=false",
+                        "--eureka.client.register-with-eureka=false",
+                        "--eureka.client.fetch-registry=false");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return WebClient.create("http://localhost:" + port)
+                .get()
+                .uri("/actuator/info")
+                .retrieve()
+                .toBodilessEntity()
+                .block()
+                .getStatusCode();
+    }
+
+    /**
+     * Stops the application.
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        context.close();
+    }
+}
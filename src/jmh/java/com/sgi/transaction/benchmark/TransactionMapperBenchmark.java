@@ -0,0 +1,88 @@
+package com.sgi.transaction.benchmark;
+
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.infrastructure.dto.TransactionRequest;
+import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.mapper.TransactionMapper;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-request conversions of a single transaction: the MapStruct mappings, which include
+ * Instant to OffsetDateTime, and the Mongo conversion, which turns BigDecimal fields into Decimal128.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionMapperBenchmark {
+
+    private Transaction transaction;
+
+    private TransactionRequest request;
+
+    private MappingMongoConverter converter;
+
+    private Document document;
+
+    /**
+     * Builds the fixtures and a Mongo converter configured like the one of the application.
+     */
+    @Setup
+    public void setUp() {
+        transaction = BenchmarkData.transaction(1);
+        request = BenchmarkData.request();
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        document = new Document();
+        converter.write(transaction, document);
+    }
+
+    @Benchmark
+    public TransactionResponse toTransactionResponse() {
+        return TransactionMapper.INSTANCE.toTransactionResponse(transaction);
+    }
+
+    @Benchmark
+    public Transaction created() {
+        return TransactionMapper.INSTANCE.created(request);
+    }
+
+    /**
+     * Writes a transaction into a BSON document, as done on every insert.
+     */
+    @Benchmark
+    public Document writeDocument() {
+        Document target = new Document();
+        converter.write(transaction, target);
+        return target;
+    }
+
+    @Benchmark
+    public Transaction readDocument() {
+        return converter.read(Transaction.class, document);
+    }
+}
@@ -1,13 +1,18 @@
 package com.sgi.transaction;
 
+import com.sgi.transaction.infrastructure.config.TransactionRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 /**
  * Main class of the Transaction application.
  * Starts the Spring Boot application.
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@ImportRuntimeHints(TransactionRuntimeHints.class)
 public class TransactionBackApplication {
 
 	public static void main(String[] args) {
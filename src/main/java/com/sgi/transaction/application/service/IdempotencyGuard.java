@@ -0,0 +1,166 @@
+package com.sgi.transaction.application.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sgi.transaction.domain.model.IdempotencyRecord;
+import com.sgi.transaction.domain.ports.out.IdempotencyRepository;
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs a write at most once per Idempotency-Key and replays its response to every retry with the same key.
+ * The first request claims the key in the {@link IdempotencyRepository}, runs and stores its response;
+ * a duplicate in this instance joins that execution, a duplicate in another instance polls the key until
+ * the response is stored. Completed responses are also kept in memory, so a hot key is replayed without a read.
+ * A key sent again with a different request is rejected; requests are compared by a hash of their canonical JSON,
+ * with properties and map entries sorted by name.
+ */
+@Component
+public class IdempotencyGuard {
+
+    private static final String CACHE_NAME = "idempotency";
+
+    private final IdempotencyRepository idempotencyRepository;
+
+    private final TransactionProperties.Idempotency properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectMapper canonicalMapper;
+
+    private final Cache<String, IdempotencyRecord> completed;
+
+    private final Map<String, Mono<IdempotencyRecord>> inFlights = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the guard and registers the metrics of its in-memory responses.
+     *
+     * @param idempotencyRepository Store of the keys shared by every instance.
+     * @param properties The idempotency options.
+     * @param objectMapper Mapper the responses are stored with, and the requests fingerprinted with.
+     * @param meterRegistry Registry where the cache metrics are published.
+     */
+    public IdempotencyGuard(IdempotencyRepository idempotencyRepository, TransactionProperties properties, ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.properties = properties.getIdempotency();
+        this.objectMapper = objectMapper;
+        this.canonicalMapper = objectMapper.copy();
+        this.canonicalMapper.setConfig(canonicalMapper.getSerializationConfig()
+                .with(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS));
+        this.completed = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(this.properties.getCacheMaximumSize())
+                .expireAfterWrite(this.properties.getCacheTimeToLive())
+                .recordStats()
+                .build(), CACHE_NAME);
+    }
+
+    /**
+     * Runs the action once for the key, or replays the response of the execution that did.
+     *
+     * @param operation Name of the operation, keys of different operations never collide.
+     * @param key The Idempotency-Key, or null to run the action without deduplication.
+     * @param request Arguments of the request, compared with those of the first execution of the key.
+     * @param action The write.
+     * @return The response of the first execution of the key.
+     */
+    public Mono<TransactionResponse> execute(String operation, String key, List<Object> request,
+                                             Supplier<Mono<TransactionResponse>> action) {
+        if (key == null || !properties.isEnabled()) {
+            return Mono.defer(action);
+        }
+        String id = operation + ":" + key;
+        String fingerprint = fingerprint(request);
+        return Mono.defer(() -> {
+            IdempotencyRecord record = completed.getIfPresent(id);
+            return record != null
+                    ? Mono.just(record)
+                    : inFlights.computeIfAbsent(id, k -> claim(id, fingerprint, action)
+                            .doFinally(signal -> inFlights.remove(id))
+                            .cache());
+        }).flatMap(record -> replay(record, fingerprint));
+    }
+
+    /**
+     * Claims the key and runs the action, or waits for the instance holding the claim.
+     * The claim expires after the claim time to live, so a crashed execution does not block the key.
+     */
+    private Mono<IdempotencyRecord> claim(String id, String fingerprint, Supplier<Mono<TransactionResponse>> action) {
+        IdempotencyRecord pending = IdempotencyRecord.builder()
+                .id(id)
+                .fingerprint(fingerprint)
+                .expiresAt(Instant.now().plus(properties.getClaimTimeToLive()))
+                .build();
+        return idempotencyRepository.claim(pending)
+                .flatMap(claimed -> claimed ? run(pending, action) : await(id, fingerprint, action));
+    }
+
+    /**
+     * Runs the action and stores its response. A failed execution releases the key so it can be retried.
+     */
+    private Mono<IdempotencyRecord> run(IdempotencyRecord pending, Supplier<Mono<TransactionResponse>> action) {
+        return Mono.defer(action)
+                .flatMap(response -> Mono.fromCallable(() -> IdempotencyRecord.builder()
+                        .id(pending.getId())
+                        .fingerprint(pending.getFingerprint())
+                        .response(objectMapper.writeValueAsString(response))
+                        .expiresAt(Instant.now().plus(properties.getTimeToLive()))
+                        .build()))
+                .flatMap(record -> idempotencyRepository.complete(record).thenReturn(record))
+                .doOnNext(record -> completed.put(record.getId(), record))
+                .onErrorResume(ex -> idempotencyRepository.release(pending.getId()).then(Mono.error(ex)));
+    }
+
+    /**
+     * Polls the key until its execution completes, or until it is released and can be claimed again.
+     * A key held for another request is returned right away to be rejected.
+     */
+    private Mono<IdempotencyRecord> await(String id, String fingerprint, Supplier<Mono<TransactionResponse>> action) {
+        return Mono.defer(() -> idempotencyRepository.findById(id))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .filter(record -> record.map(found -> found.isCompleted() || !fingerprint.equals(found.getFingerprint()))
+                        .orElse(true))
+                .repeatWhenEmpty(repeats -> repeats.delayElements(properties.getPollInterval()))
+                .timeout(properties.getWaitTimeout(),
+                        Mono.error(() -> new CustomException(CustomError.E_IDEMPOTENCY_KEY_IN_PROGRESS)))
+                .flatMap(record -> record.map(Mono::just).orElseGet(() -> claim(id, fingerprint, action)));
+    }
+
+    private Mono<TransactionResponse> replay(IdempotencyRecord record, String fingerprint) {
+        if (!fingerprint.equals(record.getFingerprint())) {
+            return Mono.error(new CustomException(CustomError.E_IDEMPOTENCY_KEY_REUSED));
+        }
+        return Mono.fromCallable(() -> objectMapper.readValue(record.getResponse(), TransactionResponse.class));
+    }
+
+    String fingerprint(List<Object> request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
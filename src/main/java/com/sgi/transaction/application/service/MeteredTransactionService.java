@@ -0,0 +1,177 @@
+package com.sgi.transaction.application.service;
+
+import com.sgi.transaction.domain.model.TransactionFilter;
+import com.sgi.transaction.domain.model.TransactionPage;
+import com.sgi.transaction.domain.ports.in.TransactionService;
+import com.sgi.transaction.infrastructure.dto.AverageReportResponse;
+import com.sgi.transaction.infrastructure.dto.CommissionSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.Granularity;
+import com.sgi.transaction.infrastructure.dto.ProductSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
+import com.sgi.transaction.infrastructure.dto.TransactionPatchRequest;
+import com.sgi.transaction.infrastructure.dto.TransactionRequest;
+import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decorates {@link TransactionServiceImpl} with Micrometer metrics. Each operation records the timer
+ * "transaction.service" tagged by operation and outcome, failures are counted by error code in
+ * "transaction.service.errors", and streamed operations record their number of documents in
+ * "transaction.service.documents".
+ */
+@Primary
+@Service
+public class MeteredTransactionService implements TransactionService {
+
+    public static final String TIMER = "transaction.service";
+
+    public static final String ERRORS = "transaction.service.errors";
+
+    public static final String DOCUMENTS = "transaction.service.documents";
+
+    private final TransactionService delegate;
+
+    private final MeterRegistry meterRegistry;
+
+    public MeteredTransactionService(TransactionServiceImpl delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<TransactionResponse> createTransaction(Mono<TransactionRequest> transactionRequest, String idempotencyKey) {
+        return timed("createTransaction", delegate.createTransaction(transactionRequest, idempotencyKey));
+    }
+
+    @Override
+    public Flux<TransactionBatchResult> createTransactions(Flux<TransactionRequest> transactions) {
+        return timed("createTransactions", delegate.createTransactions(transactions));
+    }
+
+    @Override
+    public Mono<Void> deleteTransaction(String id) {
+        return timed("deleteTransaction", delegate.deleteTransaction(id));
+    }
+
+    @Override
+    public Mono<Long> deleteTransactions(TransactionFilter filter) {
+        return timed("deleteTransactions", delegate.deleteTransactions(filter));
+    }
+
+    @Override
+    public Mono<TransactionPage> getAllTransactions(String productId, String cardId, Integer page, Integer size, String cursor,
+                                                    String fields) {
+        return timed("getAllTransactions", delegate.getAllTransactions(productId, cardId, page, size, cursor, fields));
+    }
+
+    @Override
+    public Flux<TransactionResponse> streamAllTransactions(String productId, String cardId, Integer page, Integer size, String cursor,
+                                                           String fields) {
+        return timed("streamAllTransactions", delegate.streamAllTransactions(productId, cardId, page, size, cursor, fields));
+    }
+
+    @Override
+    public Mono<TransactionResponse> getTransactionById(String id, String fields) {
+        return timed("getTransactionById", delegate.getTransactionById(id, fields));
+    }
+
+    @Override
+    public Mono<TransactionResponse> updateTransaction(String id, Mono<TransactionRequest> transactionRequest, String idempotencyKey) {
+        return timed("updateTransaction", delegate.updateTransaction(id, transactionRequest, idempotencyKey));
+    }
+
+    @Override
+    public Mono<TransactionResponse> patchTransaction(String id, Mono<TransactionPatchRequest> patchRequest) {
+        return timed("patchTransaction", delegate.patchTransaction(id, patchRequest));
+    }
+
+    @Override
+    public Flux<TransactionResponse> getTransactionsByAccountId(String accountId, String fields) {
+        return timed("getTransactionsByAccountId", delegate.getTransactionsByAccountId(accountId, fields));
+    }
+
+    @Override
+    public Flux<TransactionResponse> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate, String fields) {
+        return timed("getCommissionsByProductAndPeriod", delegate.getCommissionsByProductAndPeriod(productId, startDate, endDate, fields));
+    }
+
+    @Override
+    public Mono<CommissionSummaryResponse> getCommissionSummary(String productId, LocalDate startDate, LocalDate endDate, Granularity granularity) {
+        return timed("getCommissionSummary", delegate.getCommissionSummary(productId, startDate, endDate, granularity));
+    }
+
+    @Override
+    public Mono<AverageReportResponse> getDailyAverageBalancesForClient(String clientId, LocalDate startDate, LocalDate endDate) {
+        return timed("getDailyAverageBalancesForClient", delegate.getDailyAverageBalancesForClient(clientId, startDate, endDate));
+    }
+
+    @Override
+    public Mono<ProductSummaryResponse> getProductSummary(String productId) {
+        return timed("getProductSummary", delegate.getProductSummary(productId));
+    }
+
+    private <T> Mono<T> timed(String operation, Mono<T> source) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            return source.doOnError(failure::set)
+                    .doFinally(signal -> record(operation, sample, signal, failure.get()));
+        });
+    }
+
+    private <T> Flux<T> timed(String operation, Flux<T> source) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicLong documents = new AtomicLong();
+            return source.doOnNext(item -> documents.incrementAndGet())
+                    .doOnError(failure::set)
+                    .doFinally(signal -> {
+                        record(operation, sample, signal, failure.get());
+                        DistributionSummary.builder(DOCUMENTS)
+                                .tag("operation", operation)
+                                .register(meterRegistry)
+                                .record(documents.get());
+                    });
+        });
+    }
+
+    private void record(String operation, Timer.Sample sample, SignalType signal, Throwable failure) {
+        String outcome = outcomeOf(signal, failure);
+        sample.stop(Timer.builder(TIMER)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        if (failure != null) {
+            Counter.builder(ERRORS)
+                    .tag("operation", operation)
+                    .tag("code", failure instanceof CustomException customException
+                            ? customException.getCode()
+                            : failure.getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private String outcomeOf(SignalType signal, Throwable failure) {
+        if (failure != null) {
+            return failure instanceof CustomException customException && customException.getStatus() < 500
+                    ? "CLIENT_ERROR"
+                    : "SERVER_ERROR";
+        }
+        return signal == SignalType.CANCEL ? "CANCELLED" : "SUCCESS";
+    }
+}
@@ -0,0 +1,177 @@
+package com.sgi.transaction.application.service;
+
+import com.sgi.transaction.domain.model.DailyBalance;
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.dto.DailyAverages;
+import com.sgi.transaction.infrastructure.dto.Product;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates money totals per product and day in {@code long} minor units (cents), so a report adds
+ * primitives instead of allocating a {@link BigDecimal} or a boxed double per row. Totals are exact to the
+ * cent and an {@link ArithmeticException} from the exact arithmetic is reported as {@link CustomError#E_AMOUNT_OVERFLOW}.
+ * Each product and day has a slot in dense arrays, found through an open addressing table keyed by
+ * {@code productIndex << 32 | epochDay}. Instances are meant for a single report and are not thread safe.
+ */
+public class MoneyAggregator {
+
+    static final int SCALE = 2;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<String, Integer> productIndexes = new HashMap<>();
+
+    private final List<String> productIds = new ArrayList<>();
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    private long[] sums = new long[INITIAL_CAPACITY];
+
+    private long[] counts = new long[INITIAL_CAPACITY];
+
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+
+    private int size;
+
+    /**
+     * Adds a daily balance row. Rows without transactions are ignored.
+     *
+     * @param dailyBalance The row, read from the rollup or from the aggregation over transactions.
+     * @return This aggregator.
+     */
+    public MoneyAggregator add(DailyBalance dailyBalance) {
+        if (dailyBalance.getCount() == null || dailyBalance.getCount() <= 0) {
+            return this;
+        }
+        return add(dailyBalance.getProductId(), LocalDate.parse(dailyBalance.getDay()),
+                toMinorUnits(dailyBalance.getSum()), dailyBalance.getCount());
+    }
+
+    /**
+     * Adds an amount already expressed in minor units.
+     *
+     * @param productId The product the amount belongs to.
+     * @param day The day the amount belongs to.
+     * @param amount The amount in minor units.
+     * @param count The number of transactions the amount totals.
+     * @return This aggregator.
+     */
+    public MoneyAggregator add(String productId, LocalDate day, long amount, long count) {
+        int slot = slot(key(productIndex(productId), day.toEpochDay()));
+        try {
+            sums[slot] = Math.addExact(sums[slot], amount);
+            counts[slot] = Math.addExact(counts[slot], count);
+        } catch (ArithmeticException ex) {
+            throw new CustomException(CustomError.E_AMOUNT_OVERFLOW);
+        }
+        return this;
+    }
+
+    /**
+     * Converts an amount to minor units, rounding half even beyond the cent.
+     *
+     * @param amount The amount, null counting as zero.
+     * @return The amount in minor units.
+     */
+    static long toMinorUnits(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        try {
+            return amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new CustomException(CustomError.E_AMOUNT_OVERFLOW);
+        }
+    }
+
+    /**
+     * Divides a total in minor units by a count, rounding half even to the cent.
+     */
+    static long average(long sum, long count) {
+        long quotient = Math.floorDiv(sum, count);
+        long twiceRemainder = Math.floorMod(sum, count) * 2;
+        if (twiceRemainder > count || twiceRemainder == count && (quotient & 1) == 1) {
+            quotient++;
+        }
+        return quotient;
+    }
+
+    /**
+     * Builds the average balance of every product and day, products in the order they were first added
+     * and days in ascending order.
+     *
+     * @return The products of the report.
+     */
+    public List<Product> toProducts() {
+        long[] ordered = Arrays.copyOf(keys, size);
+        Arrays.sort(ordered);
+        List<Product> products = new ArrayList<>(productIds.size());
+        Product product = null;
+        int productIndex = -1;
+        for (long key : ordered) {
+            int slot = table[find(key)] - 1;
+            if ((int) (key >>> 32) != productIndex) {
+                productIndex = (int) (key >>> 32);
+                product = new Product(productIds.get(productIndex), new ArrayList<>());
+                products.add(product);
+            }
+            product.getDailyAverages().add(new DailyAverages(LocalDate.ofEpochDay((int) key),
+                    BigDecimal.valueOf(average(sums[slot], counts[slot]), SCALE).doubleValue()));
+        }
+        return products;
+    }
+
+    private int productIndex(String productId) {
+        return productIndexes.computeIfAbsent(productId, id -> {
+            productIds.add(id);
+            return productIds.size() - 1;
+        });
+    }
+
+    private static long key(int productIndex, long epochDay) {
+        return (long) productIndex << 32 | epochDay & 0xFFFFFFFFL;
+    }
+
+    private int slot(long key) {
+        int position = find(key);
+        if (table[position] != 0) {
+            return table[position] - 1;
+        }
+        if (size == keys.length) {
+            grow();
+            position = find(key);
+        }
+        keys[size] = key;
+        table[position] = ++size;
+        return size - 1;
+    }
+
+    private int find(long key) {
+        int mask = table.length - 1;
+        int position = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (table[position] != 0 && keys[table[position] - 1] != key) {
+            position = (position + 1) & mask;
+        }
+        return position;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        sums = Arrays.copyOf(sums, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        table = new int[capacity * 2];
+        for (int slot = 0; slot < size; slot++) {
+            table[find(keys[slot])] = slot + 1;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.sgi.transaction.application.service;
+
+import com.sgi.transaction.infrastructure.admission.Deadline;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets identical report requests that arrive while one is already running share its execution and result.
+ * Requests are identical when they target the same operation with the same arguments. A request only
+ * joins an execution started less than the configured share window ago, otherwise it runs its own.
+ * The shared execution does not see the Reactor context of any request: it runs under the deadline configured
+ * for its operation, and each request only waits for it until its own deadline, so a request that gives up
+ * neither cuts short nor extends the execution the others are waiting for.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestCoalescer {
+
+    private final Map<List<Object>, InFlight<?>> inFlights = new ConcurrentHashMap<>();
+
+    private final TransactionProperties properties;
+
+    /**
+     * Runs the request or joins an identical one in flight. Only single-valued reports are shared:
+     * a joiner is replayed the one result, while sharing a stream would buffer all of it for late joiners.
+     *
+     * @param operation Operation id, as listed in the coalescing and deadline options.
+     * @param arguments Arguments that identify the request.
+     * @param source Builds the upstream execution.
+     * @return The shared result.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> mono(String operation, List<Object> arguments, Supplier<Mono<T>> source) {
+        TransactionProperties.Coalescing coalescing = properties.getCoalescing();
+        if (!coalescing.isEnabled() || !coalescing.getOperations().contains(operation)) {
+            return Mono.defer(source);
+        }
+        List<Object> key = new ArrayList<>(arguments.size() + 1);
+        key.add(operation);
+        key.addAll(arguments);
+        return Mono.defer(() -> {
+            long now = System.nanoTime();
+            InFlight<?> inFlight = inFlights.compute(key, (k, current) ->
+                    current != null && now - current.startedAt <= coalescing.getMaxShareWindow().toNanos()
+                            ? current
+                            : start(k, operation, source, now));
+            return Deadline.mono(deadline -> (Mono<T>) inFlight.result);
+        });
+    }
+
+    private <T> InFlight<T> start(List<Object> key, String operation, Supplier<Mono<T>> source, long startedAt) {
+        InFlight<T> inFlight = new InFlight<>(startedAt);
+        Duration timeout = timeoutOf(operation);
+        inFlight.result = Mono.defer(source)
+                .contextWrite(context -> timeout.isZero() ? Context.empty() : Deadline.after(timeout).store(Context.empty()))
+                .doFinally(signal -> inFlights.remove(key, inFlight))
+                .flux()
+                .replay(1)
+                .refCount()
+                .singleOrEmpty();
+        return inFlight;
+    }
+
+    private Duration timeoutOf(String operation) {
+        TransactionProperties.Deadlines deadlines = properties.getDeadlines();
+        return deadlines.isEnabled() ? deadlines.getOperations().getOrDefault(operation, deadlines.getDefaultTimeout()) : Duration.ZERO;
+    }
+
+    private static final class InFlight<T> {
+        private final long startedAt;
+        private Mono<T> result;
+
+        private InFlight(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -1,125 +1,299 @@
 package com.sgi.transaction.application.service;
 
+import com.sgi.transaction.domain.model.DailyBalance;
 import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.domain.model.TransactionCursor;
+import com.sgi.transaction.domain.model.TransactionFields;
+import com.sgi.transaction.domain.model.TransactionFilter;
+import com.sgi.transaction.domain.model.TransactionPage;
 import com.sgi.transaction.domain.ports.in.TransactionService;
+import com.sgi.transaction.domain.ports.out.DailyBalanceRepository;
+import com.sgi.transaction.domain.ports.out.ProductSummaryRepository;
 import com.sgi.transaction.domain.ports.out.TransactionRepository;
 import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
 import com.sgi.transaction.infrastructure.dto.AverageReportResponse;
+import com.sgi.transaction.infrastructure.dto.CommissionSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.Granularity;
 import com.sgi.transaction.infrastructure.dto.Product;
-import com.sgi.transaction.infrastructure.dto.DailyAverages;
+import com.sgi.transaction.infrastructure.dto.ProductSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
+import com.sgi.transaction.infrastructure.dto.TransactionPatchRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionResponse;
 import com.sgi.transaction.infrastructure.exception.CustomException;
 import com.sgi.transaction.infrastructure.mapper.TransactionMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of the {@link TransactionService} interface.
  * Provides operations for managing transactions such as creating, updating, deleting,
  * and retrieving transactions.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class TransactionServiceImpl implements TransactionService {
 
     private final TransactionRepository transactionRepository;
 
+    private final DailyBalanceRepository dailyBalanceRepository;
+
+    private final ProductSummaryRepository productSummaryRepository;
+
+    private final TransactionProperties properties;
+
+    private final RequestCoalescer requestCoalescer;
+
+    private final IdempotencyGuard idempotencyGuard;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * The request is fingerprinted before its defaults are applied, so a retry matches the original request.
+     */
     @Override
-    public Mono<TransactionResponse> createTransaction(Mono<TransactionRequest> transactionRequestMono) {
-        return transactionRequestMono.flatMap(transactionRequest -> {
-            transactionRequest.setCommission(Objects.requireNonNullElse(transactionRequest.getCommission(), 0d));
-            transactionRequest.setStatus(TransactionRequest.StatusEnum.COMPLETED);
-            return TransactionMapper.INSTANCE.map(Mono.just(transactionRequest))
-                    .flatMap(transactionRepository::save);
-        });
+    public Mono<TransactionResponse> createTransaction(Mono<TransactionRequest> transactionRequestMono, String idempotencyKey) {
+        return transactionRequestMono.flatMap(transactionRequest -> idempotencyGuard.execute("create", idempotencyKey,
+                List.of(transactionRequest), () -> create(transactionRequest)));
+    }
+
+    private Mono<TransactionResponse> create(TransactionRequest transactionRequest) {
+        return TransactionMapper.INSTANCE.map(Mono.just(applyDefaults(transactionRequest)))
+                .flatMap(transaction -> transactionRepository.save(transaction)
+                        .flatMap(response -> updateRollup("create", dailyBalanceRepository.add(transaction)).thenReturn(response)));
+    }
+
+    @Override
+    public Flux<TransactionBatchResult> createTransactions(Flux<TransactionRequest> transactionRequests) {
+        int chunkSize = properties.getBatch().getChunkSize();
+        return transactionRequests
+                .map(transactionRequest -> TransactionMapper.INSTANCE.created(applyDefaults(transactionRequest)))
+                .buffer(chunkSize)
+                .index()
+                .concatMap(chunk -> transactionRepository.insertAll(chunk.getT2())
+                        .collectList()
+                        .flatMapMany(results -> updateRollup("create-batch", dailyBalanceRepository.addAll(results.stream()
+                                        .filter(result -> result.getStatus() == TransactionBatchResult.StatusEnum.CREATED)
+                                        .map(result -> chunk.getT2().get(result.getIndex()))
+                                        .toList()))
+                                .thenMany(Flux.fromIterable(results)))
+                        .map(result -> result.index(result.getIndex() + (int) (chunk.getT1() * chunkSize))));
+    }
+
+    private TransactionRequest applyDefaults(TransactionRequest transactionRequest) {
+        transactionRequest.setCommission(Objects.requireNonNullElse(transactionRequest.getCommission(), 0d));
+        transactionRequest.setStatus(TransactionRequest.StatusEnum.COMPLETED);
+        return transactionRequest;
     }
 
     @Override
     public Mono<Void> deleteTransaction(String id) {
-        return transactionRepository.findById(id)
+        return transactionRepository.deleteById(id)
                 .switchIfEmpty(Mono.error(new CustomException(CustomError.E_TRANSACTION_NOT_FOUND)))
-                .flatMap(transactionRepository::delete);
+                .flatMap(transaction -> updateRollup("delete", dailyBalanceRepository.subtract(transaction)));
     }
 
+    /**
+     * Deletes the matching transactions chunk by chunk and takes each removed chunk out of the daily balance rollup.
+     * A transaction also deleted by id while its chunk is in flight is taken out twice; the window is one round trip.
+     */
     @Override
-    public Flux<TransactionResponse> getAllTransactions(String productId, String cardId, Integer page, Integer size) {
-        return transactionRepository.findAll(productId, cardId, page, size);
+    public Mono<Long> deleteTransactions(TransactionFilter filter) {
+        if (filter.isEmpty()) {
+            return Mono.error(new CustomException(CustomError.E_EMPTY_DELETE_FILTER));
+        }
+        return transactionRepository.deleteAll(filter)
+                .concatMap(removed -> updateRollup("delete-batch", dailyBalanceRepository.subtractAll(removed)).thenReturn((long) removed.size()))
+                .reduce(0L, Long::sum);
     }
 
     @Override
-    public Mono<TransactionResponse> getTransactionById(String id) {
-        return transactionRepository.findById(id)
-                .map(TransactionMapper.INSTANCE::toTransactionResponse);
+    public Mono<TransactionPage> getAllTransactions(String productId, String cardId, Integer page, Integer size, String cursor,
+                                                    String fields) {
+        return streamAllTransactions(productId, cardId, page, size, cursor, fields)
+                .collectList()
+                .map(content -> new TransactionPage(content, nextCursor(content, size)));
+    }
+
+    /**
+     * Projected pages always read createdDate as well, since the next cursor is built from the last transaction.
+     */
+    @Override
+    public Flux<TransactionResponse> streamAllTransactions(String productId, String cardId, Integer page, Integer size, String cursor,
+                                                           String fields) {
+        return parseFields(fields)
+                .map(selection -> selection.with("createdDate"))
+                .flatMapMany(selection -> cursor == null
+                        ? transactionRepository.findAll(productId, cardId, page, size, selection)
+                        : Mono.fromCallable(() -> TransactionCursor.decode(cursor))
+                                .flatMapMany(position -> transactionRepository.findAll(productId, cardId, position, size, selection)));
+    }
+
+    private Mono<TransactionFields> parseFields(String fields) {
+        return Mono.fromCallable(() -> TransactionFields.parse(fields));
+    }
+
+    private String nextCursor(List<TransactionResponse> content, Integer size) {
+        if (content.isEmpty() || content.size() < size) {
+            return null;
+        }
+        TransactionResponse last = content.get(content.size() - 1);
+        return last.getId() == null || last.getCreatedDate() == null ? null : TransactionCursor.from(last).encode();
+    }
+
+    @Override
+    public Mono<TransactionResponse> getTransactionById(String id, String fields) {
+        return parseFields(fields)
+                .flatMap(selection -> transactionRepository.findById(id, selection)
+                        .map(transaction -> TransactionMapper.INSTANCE.toTransactionResponse(transaction, selection)));
     }
 
     @Override
-    public Mono<TransactionResponse> updateTransaction(String id, Mono<TransactionRequest> transactionRequestMono) {
+    public Mono<TransactionResponse> updateTransaction(String id, Mono<TransactionRequest> transactionRequestMono, String idempotencyKey) {
+        return transactionRequestMono.flatMap(transactionRequest -> idempotencyGuard.execute("update", idempotencyKey,
+                List.of(id, transactionRequest), () -> update(id, transactionRequest)));
+    }
+
+    /**
+     * Replaces the transaction, keeping its creation date and, when the request omits them, its client and product,
+     * so the replacement is added back to the same daily balance it is subtracted from.
+     */
+    private Mono<TransactionResponse> update(String id, TransactionRequest transactionRequest) {
         return transactionRepository.findById(id)
                 .switchIfEmpty(Mono.error(new CustomException(CustomError.E_TRANSACTION_NOT_FOUND)))
-                .flatMap(transaction ->
-                        transactionRequestMono.map(transactionRequest -> {
-                            Transaction updatedTransaction = TransactionMapper.INSTANCE.toTransaction(transactionRequest);
-                            updatedTransaction.setId(transaction.getId());
-                            updatedTransaction.setStatus(Optional.ofNullable(transactionRequest.getStatus())
-                                    .map(Enum::name)
-                                    .orElse(transaction.getStatus()));
-                            updatedTransaction.setUpdatedDate(Instant.now());
-                            return updatedTransaction;
-                        })
-                )
-                .flatMap(transactionRepository::save);
+                .flatMap(transaction -> {
+                    Transaction updatedTransaction = TransactionMapper.INSTANCE.toTransaction(transactionRequest);
+                    updatedTransaction.setId(transaction.getId());
+                    updatedTransaction.setCreatedDate(transaction.getCreatedDate());
+                    updatedTransaction.setClientId(Objects.requireNonNullElse(updatedTransaction.getClientId(), transaction.getClientId()));
+                    updatedTransaction.setProductId(Objects.requireNonNullElse(updatedTransaction.getProductId(), transaction.getProductId()));
+                    updatedTransaction.setStatus(Optional.ofNullable(transactionRequest.getStatus())
+                            .map(Enum::name)
+                            .orElse(transaction.getStatus()));
+                    updatedTransaction.setUpdatedDate(Instant.now());
+                    return transactionRepository.save(updatedTransaction)
+                            .flatMap(response -> updateRollup("update", dailyBalanceRepository.subtract(transaction)
+                                    .then(dailyBalanceRepository.add(updatedTransaction)))
+                                    .thenReturn(response));
+                });
+    }
+
+    @Override
+    public Mono<TransactionResponse> patchTransaction(String id, Mono<TransactionPatchRequest> patchRequestMono) {
+        return patchRequestMono.flatMap(patchRequest -> {
+            Transaction changes = TransactionMapper.INSTANCE.fromPatch(patchRequest);
+            changes.setUpdatedDate(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+            Instant expectedUpdatedDate = Optional.ofNullable(patchRequest.getExpectedUpdatedDate())
+                    .map(OffsetDateTime::toInstant)
+                    .orElse(null);
+            return transactionRepository.patch(id, changes, expectedUpdatedDate)
+                    .switchIfEmpty(Mono.defer(() -> transactionRepository.existsById(id)
+                            .flatMap(exists -> Mono.error(new CustomException(exists
+                                    ? CustomError.E_TRANSACTION_CONFLICT
+                                    : CustomError.E_TRANSACTION_NOT_FOUND)))))
+                    .flatMap(previous -> {
+                        Transaction patched = TransactionMapper.INSTANCE.patched(previous, changes);
+                        Mono<Void> rollup = affectsDailyBalance(changes)
+                                ? updateRollup("patch", dailyBalanceRepository.subtract(previous).then(dailyBalanceRepository.add(patched)))
+                                : Mono.empty();
+                        return rollup.thenReturn(TransactionMapper.INSTANCE.toTransactionResponse(patched));
+                    });
+        });
+    }
+
+    /**
+     * Applies a change to the daily balance rollup once the transaction write it follows has succeeded.
+     * That write is not undone, so a failed rollup update is logged and counted instead of failing the request,
+     * which would release its idempotency key and let a retry write the transaction twice.
+     */
+    private Mono<Void> updateRollup(String operation, Mono<Void> update) {
+        return update.onErrorResume(ex -> {
+            log.warn("Daily balance rollup not updated after {}", operation, ex);
+            meterRegistry.counter("transaction.rollup.failures", "operation", operation).increment();
+            return Mono.empty();
+        });
+    }
+
+    private boolean affectsDailyBalance(Transaction changes) {
+        return changes.getBalance() != null || changes.getClientId() != null || changes.getProductId() != null;
+    }
+
+    @Override
+    public Flux<TransactionResponse> getTransactionsByAccountId(String accountId, String fields) {
+        return parseFields(fields)
+                .flatMapMany(selection -> transactionRepository.getTransactionsByAccountId(accountId, selection));
     }
 
     @Override
-    public Flux<TransactionResponse> getTransactionsByAccountId(String accountId) {
-        return transactionRepository.getTransactionsByAccountId(accountId);
+    public Flux<TransactionResponse> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate, String fields) {
+        return parseFields(fields)
+                .flatMapMany(selection -> transactionRepository.getCommissionsByProductAndPeriod(productId, startDate, endDate, selection));
     }
 
+    /**
+     * Builds the commission summary from the buckets totaled by the database, DAY when no granularity is given.
+     */
     @Override
-    public Flux<TransactionResponse> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate) {
-        return transactionRepository.getCommissionsByProductAndPeriod(productId, startDate, endDate);
+    public Mono<CommissionSummaryResponse> getCommissionSummary(String productId, LocalDate startDate, LocalDate endDate, Granularity granularity) {
+        Granularity bucket = granularity != null ? granularity : Granularity.DAY;
+        return requestCoalescer.mono("getCommissionSummary", List.of(productId, startDate, endDate, bucket),
+                () -> transactionRepository.aggregateCommissions(productId, startDate, endDate, bucket)
+                        .map(TransactionMapper.INSTANCE::toCommissionBucket)
+                        .collectList()
+                        .map(buckets -> new CommissionSummaryResponse(productId, bucket, buckets)));
     }
 
     @Override
     public Mono<AverageReportResponse> getDailyAverageBalancesForClient(String clientId, LocalDate startDate, LocalDate endDate) {
-        Flux<TransactionResponse> transactions = transactionRepository.getDailyAverageBalancesForClient(clientId, startDate, endDate);
-        return transactions
-                .groupBy(TransactionResponse::getProductId)
-                .flatMap(productGroup ->
-                        productGroup
-                                .collectList()
-                                .map(transactionsList -> {
-                                    List<DailyAverages> dailyAverages = calculateDailyAverages(transactionsList);
-                                    return new Product(
-                                            productGroup.key(),
-                                            dailyAverages
-                                    );
-                                })
-                )
-                .collectList()
-                .map(productAverages -> new AverageReportResponse(clientId, productAverages));
-    }
-
-    private List<DailyAverages> calculateDailyAverages(List<TransactionResponse> transactions) {
-        return transactions.stream()
-                .collect(Collectors.groupingBy(
-                        transaction -> transaction.getCreatedDate().toLocalDate(),
-                        Collectors.averagingDouble(TransactionResponse::getBalance)
-                ))
-                .entrySet()
-                .stream()
-                .map(entry -> new DailyAverages(entry.getKey(), entry.getValue()))
-                .collect(Collectors.toList());
+        return requestCoalescer.mono("getDailyAverageBalancesForClient", List.of(clientId, startDate, endDate), () -> {
+            Flux<Product> products = properties.getReports().isDailyBalanceRollup()
+                    ? getDailyAveragesFromRollup(clientId, startDate, endDate)
+                    : getDailyAveragesFromTransactions(clientId, startDate, endDate);
+            return products
+                    .collectList()
+                    .map(productAverages -> new AverageReportResponse(clientId, productAverages));
+        });
+    }
+
+    /**
+     * Reads the running totals of a product, maintained from the change stream when transaction.summary.enabled is set.
+     */
+    @Override
+    public Mono<ProductSummaryResponse> getProductSummary(String productId) {
+        if (!properties.getSummary().isEnabled()) {
+            return Mono.error(new CustomException(CustomError.E_PRODUCT_SUMMARY_NOT_FOUND));
+        }
+        return productSummaryRepository.findByProductId(productId)
+                .map(TransactionMapper.INSTANCE::toProductSummaryResponse)
+                .switchIfEmpty(Mono.error(new CustomException(CustomError.E_PRODUCT_SUMMARY_NOT_FOUND)));
+    }
+
+    private Flux<Product> getDailyAveragesFromRollup(String clientId, LocalDate startDate, LocalDate endDate) {
+        return toProducts(dailyBalanceRepository.findByClientIdAndDayBetween(clientId, startDate, endDate));
+    }
+
+    private Flux<Product> getDailyAveragesFromTransactions(String clientId, LocalDate startDate, LocalDate endDate) {
+        return toProducts(transactionRepository.aggregateDailyBalancesForClient(clientId, startDate, endDate));
+    }
+
+    private Flux<Product> toProducts(Flux<DailyBalance> dailyBalances) {
+        return dailyBalances
+                .reduceWith(MoneyAggregator::new, MoneyAggregator::add)
+                .flatMapIterable(MoneyAggregator::toProducts);
     }
 
 }
@@ -0,0 +1,27 @@
+package com.sgi.transaction.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Position reached by a change stream consumer, stored in the "change_stream_checkpoint" collection
+ * so the consumer resumes after the last change it checkpointed when it restarts.
+ * The resume token is kept as its extended JSON form.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "change_stream_checkpoint")
+public class ChangeStreamCheckpoint {
+    @Id
+    private String id;
+    private String resumeToken;
+    private Instant updatedDate;
+}
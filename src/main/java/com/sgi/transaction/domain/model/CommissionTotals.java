@@ -0,0 +1,31 @@
+package com.sgi.transaction.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+
+/**
+ * Commission totals of a product over one day, week or month, as returned by the commission aggregation.
+ * The period is the first day of the bucket as an ISO date (yyyy-MM-dd) in the report time zone.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommissionTotals {
+    private String period;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal sum;
+    private Long count;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal min;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal max;
+}
@@ -0,0 +1,47 @@
+package com.sgi.transaction.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+
+/**
+ * Daily rollup of the transaction balances of a client product.
+ * This entity is mapped to the "daily_balance" collection and is maintained incrementally
+ * on every transaction write, so reports read one document per product and day.
+ * It is also the row shape returned by the daily balance aggregation over raw transactions.
+ * The day is stored as an ISO date (yyyy-MM-dd) in the report time zone. The min and max values are not
+ * reverted when a transaction is deleted or updated, they are the extremes ever recorded that day.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "daily_balance")
+@CompoundIndexes({
+        @CompoundIndex(name = "client_product_day_idx", def = "{'clientId' : 1, 'productId' : 1, 'day' : 1}", unique = true)
+})
+public class DailyBalance {
+    @Id
+    private String id;
+    private String clientId;
+    private String productId;
+    private String day;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal sum;
+    private Long count;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal min;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal max;
+}
@@ -0,0 +1,38 @@
+package com.sgi.transaction.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Execution of a request sent with an Idempotency-Key, keyed by the operation and the key.
+ * This entity is mapped to the "idempotency_key" collection. A record without a response is a claim
+ * on an execution still running; once it completes the response is stored as JSON and replayed to retries.
+ * The fingerprint identifies the request, so a key reused for a different request is rejected.
+ * Mongo removes a record once its expiresAt has passed.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "idempotency_key")
+public class IdempotencyRecord {
+    @Id
+    private String id;
+    private String fingerprint;
+    private String response;
+    @Indexed(name = "expires_at_ttl_idx", expireAfter = "0s")
+    private Instant expiresAt;
+
+    public boolean isCompleted() {
+        return response != null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.sgi.transaction.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Running totals of the transactions of a product, keyed by the product id.
+ * This entity is mapped to the "product_summary" collection and is maintained from the change stream
+ * of the transactions, so reading the current state of a product is a single lookup.
+ * The balance is the one of the most recent transaction by createdDate. Like the daily balance extremes,
+ * it is not reverted when that transaction is deleted; the commission and the count are.
+ * The lastEvent holds the cluster time of the last change applied, which makes replayed changes no-ops.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "product_summary")
+public class ProductSummary {
+    @Id
+    private String productId;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal balance;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal commission;
+    private Long count;
+    private Instant lastActivity;
+    private Long lastEvent;
+}
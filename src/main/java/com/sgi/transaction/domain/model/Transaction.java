@@ -20,6 +20,9 @@ import java.time.Instant;
 /**
  * Represents a transaction entity in the system.
  * This entity is mapped to the "transaction" collection in the database.
+ * Each index matches the shape of a repository query: equality fields first, then createdDate and id
+ * in the order the listings sort by, so neither a collection scan nor an in-memory sort is needed.
+ * The indexes are created, and the ones they replace dropped, by the migration in {@code src/main/mongo/indexes.js}.
  */
 @Getter
 @Setter
@@ -28,8 +31,11 @@ import java.time.Instant;
 @NoArgsConstructor
 @Document(collection = "transaction")
 @CompoundIndexes({
-        @CompoundIndex(name = "product_card_idx", def = "{'productId' : 1, 'cardId' : 1}"),
-        @CompoundIndex(name = "created_date_idx", def = "{'createdDate' : -1}")
+        @CompoundIndex(name = "client_created_idx", def = "{'clientId' : 1, 'createdDate' : -1}"),
+        @CompoundIndex(name = "product_created_idx", def = "{'productId' : 1, 'createdDate' : -1, '_id' : -1}"),
+        @CompoundIndex(name = "card_created_idx", def = "{'cardId' : 1, 'createdDate' : -1, '_id' : -1}"),
+        @CompoundIndex(name = "created_id_idx", def = "{'createdDate' : -1, '_id' : -1}"),
+        @CompoundIndex(name = "status_created_idx", def = "{'status' : 1, 'createdDate' : -1}")
 })
 public class Transaction {
     @Id
@@ -0,0 +1,60 @@
+package com.sgi.transaction.domain.model;
+
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Keyset position used to page through transactions ordered by createdDate and id, both descending.
+ * Clients only see the opaque Base64 form produced by {@link #encode()}.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final Instant createdDate;
+    private final String id;
+
+    /**
+     * Builds the cursor pointing right after the given transaction.
+     *
+     * @param transaction The last transaction of the current page.
+     * @return The cursor for the next page.
+     */
+    public static TransactionCursor from(TransactionResponse transaction) {
+        return new TransactionCursor(transaction.getCreatedDate().toInstant(), transaction.getId());
+    }
+
+    /**
+     * Decodes an opaque cursor previously produced by {@link #encode()}.
+     *
+     * @param cursor The opaque cursor.
+     * @return The decoded cursor.
+     * @throws CustomException if the cursor is malformed.
+     */
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 2);
+            if (parts.length != 2 || parts[1].isEmpty()) {
+                throw new CustomException(CustomError.E_INVALID_CURSOR);
+            }
+            return new TransactionCursor(Instant.ofEpochMilli(Long.parseLong(parts[0])), parts[1]);
+        } catch (IllegalArgumentException ex) {
+            throw new CustomException(CustomError.E_INVALID_CURSOR);
+        }
+    }
+
+    public String encode() {
+        String raw = createdDate.toEpochMilli() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,85 @@
+package com.sgi.transaction.domain.model;
+
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Subset of the transaction fields requested by a client through the {@code fields} query parameter.
+ * Each name is either a TransactionResponse property or a predefined profile such as {@code summary}.
+ * An empty selection means every field.
+ */
+@Getter
+@EqualsAndHashCode
+public class TransactionFields {
+
+    public static final TransactionFields ALL = new TransactionFields(Set.of());
+
+    private static final String SEPARATOR = ",";
+
+    private static final Set<String> FIELDS = Set.of("id", "productId", "cardId", "destinationProductId", "type", "amount",
+            "status", "clientId", "commission", "currency", "operation", "walletId", "sender", "receiver", "balance",
+            "createdDate", "updatedDate");
+
+    private static final Map<String, Set<String>> PROFILES = Map.of(
+            "summary", Set.of("id", "type", "amount", "createdDate"));
+
+    private final Set<String> names;
+
+    private TransactionFields(Set<String> names) {
+        this.names = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Parses the comma separated value of the {@code fields} query parameter.
+     *
+     * @param fields The raw parameter, null or blank for every field.
+     * @return The requested fields.
+     * @throws CustomException if a name is neither a field nor a profile.
+     */
+    public static TransactionFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        Arrays.stream(fields.split(SEPARATOR))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .forEach(name -> {
+                    if (PROFILES.containsKey(name)) {
+                        names.addAll(PROFILES.get(name));
+                    } else if (FIELDS.contains(name)) {
+                        names.add(name);
+                    } else {
+                        throw new CustomException(CustomError.E_INVALID_FIELDS);
+                    }
+                });
+        return names.isEmpty() ? ALL : new TransactionFields(names);
+    }
+
+    public boolean isAll() {
+        return names.isEmpty();
+    }
+
+    /**
+     * Adds fields the caller needs on top of the requested ones, such as the sort keys of a cursor.
+     *
+     * @param required The fields to add.
+     * @return The widened selection, or this one when every field is already selected.
+     */
+    public TransactionFields with(String... required) {
+        if (isAll()) {
+            return this;
+        }
+        Set<String> widened = new LinkedHashSet<>(names);
+        widened.addAll(Arrays.asList(required));
+        return new TransactionFields(widened);
+    }
+}
@@ -0,0 +1,24 @@
+package com.sgi.transaction.domain.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Criteria of a bulk operation over transactions. Null criteria are not applied,
+ * and the dates bound the day of creation, both inclusive.
+ */
+@Getter
+@Builder
+public class TransactionFilter {
+    private final String productId;
+    private final String cardId;
+    private final String status;
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public boolean isEmpty() {
+        return productId == null && cardId == null && status == null && from == null && to == null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.sgi.transaction.domain.model;
+
+import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A page of transactions together with the opaque cursor of the next page.
+ * The cursor is null when the page is the last one.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionPage {
+    private final List<TransactionResponse> content;
+    private final String nextCursor;
+}
@@ -1,6 +1,13 @@
 package com.sgi.transaction.domain.ports.in;
 
+import com.sgi.transaction.domain.model.TransactionFilter;
+import com.sgi.transaction.domain.model.TransactionPage;
 import com.sgi.transaction.infrastructure.dto.AverageReportResponse;
+import com.sgi.transaction.infrastructure.dto.CommissionSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.Granularity;
+import com.sgi.transaction.infrastructure.dto.ProductSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
+import com.sgi.transaction.infrastructure.dto.TransactionPatchRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionResponse;
 import reactor.core.publisher.Flux;
@@ -14,21 +21,35 @@ import java.time.LocalDate;
  */
 public interface TransactionService {
 
-    Mono<TransactionResponse> createTransaction(Mono<TransactionRequest> customer);
+    Mono<TransactionResponse> createTransaction(Mono<TransactionRequest> customer, String idempotencyKey);
+
+    Flux<TransactionBatchResult> createTransactions(Flux<TransactionRequest> transactions);
 
     Mono<Void> deleteTransaction(String id);
 
-    Flux<TransactionResponse> getAllTransactions(String productId, String cardId, Integer page, Integer size);
+    Mono<Long> deleteTransactions(TransactionFilter filter);
+
+    Mono<TransactionPage> getAllTransactions(String productId, String cardId, Integer page, Integer size, String cursor,
+                                             String fields);
+
+    Flux<TransactionResponse> streamAllTransactions(String productId, String cardId, Integer page, Integer size, String cursor,
+                                                    String fields);
 
-    Mono<TransactionResponse> getTransactionById(String id);
+    Mono<TransactionResponse> getTransactionById(String id, String fields);
 
-    Mono<TransactionResponse> updateTransaction(String id, Mono<TransactionRequest> customer);
+    Mono<TransactionResponse> updateTransaction(String id, Mono<TransactionRequest> customer, String idempotencyKey);
 
-    Flux<TransactionResponse> getTransactionsByAccountId(String accountId);
+    Mono<TransactionResponse> patchTransaction(String id, Mono<TransactionPatchRequest> patchRequest);
 
-    Flux<TransactionResponse> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate);
+    Flux<TransactionResponse> getTransactionsByAccountId(String accountId, String fields);
+
+    Flux<TransactionResponse> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate, String fields);
+
+    Mono<CommissionSummaryResponse> getCommissionSummary(String productId, LocalDate startDate, LocalDate endDate, Granularity granularity);
 
     Mono<AverageReportResponse> getDailyAverageBalancesForClient(String clientId, LocalDate startDate, LocalDate endDate);
+
+    Mono<ProductSummaryResponse> getProductSummary(String productId);
 }
 
 
@@ -0,0 +1,28 @@
+package com.sgi.transaction.domain.ports.out;
+
+import com.sgi.transaction.domain.model.DailyBalance;
+import com.sgi.transaction.domain.model.Transaction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Interface that defines the contract for the daily balance rollup.
+ * The rollup is updated incrementally with each transaction written or removed
+ * and read by the average balance report.
+ */
+public interface DailyBalanceRepository {
+
+    Mono<Void> add(Transaction transaction);
+
+    Mono<Void> addAll(List<Transaction> transactions);
+
+    Mono<Void> subtract(Transaction transaction);
+
+    Mono<Void> subtractAll(List<Transaction> transactions);
+
+    Flux<DailyBalance> findByClientIdAndDayBetween(String clientId, LocalDate startDate, LocalDate endDate);
+
+}
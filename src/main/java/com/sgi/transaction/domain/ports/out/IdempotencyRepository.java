@@ -0,0 +1,42 @@
+package com.sgi.transaction.domain.ports.out;
+
+import com.sgi.transaction.domain.model.IdempotencyRecord;
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository interface for the executions of requests sent with an Idempotency-Key.
+ */
+public interface IdempotencyRepository {
+
+    /**
+     * Claims the execution of a key, unless an unexpired record already holds it.
+     *
+     * @param pending The record to store, without a response.
+     * @return True if this caller must run the request, false if another execution holds the key.
+     */
+    Mono<Boolean> claim(IdempotencyRecord pending);
+
+    /**
+     * Stores the response of a claimed execution.
+     *
+     * @param completed The record with its response.
+     * @return Completes once the response is stored.
+     */
+    Mono<Void> complete(IdempotencyRecord completed);
+
+    /**
+     * Gives up a claim whose execution failed, so a retry runs the request again.
+     *
+     * @param id Identifier of the record.
+     * @return Completes once the claim is removed.
+     */
+    Mono<Void> release(String id);
+
+    /**
+     * Reads a record that has not expired yet.
+     *
+     * @param id Identifier of the record.
+     * @return The record, or empty if there is none or it expired.
+     */
+    Mono<IdempotencyRecord> findById(String id);
+}
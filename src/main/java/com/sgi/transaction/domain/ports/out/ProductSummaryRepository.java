@@ -0,0 +1,14 @@
+package com.sgi.transaction.domain.ports.out;
+
+import com.sgi.transaction.domain.model.ProductSummary;
+import reactor.core.publisher.Mono;
+
+/**
+ * Interface that defines the contract for reading the running totals of a product.
+ * The totals are written by the change stream consumer, not by the transaction writes.
+ */
+public interface ProductSummaryRepository {
+
+    Mono<ProductSummary> findByProductId(String productId);
+
+}
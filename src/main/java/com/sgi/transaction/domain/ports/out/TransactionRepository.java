@@ -1,11 +1,20 @@
 package com.sgi.transaction.domain.ports.out;
 
+import com.sgi.transaction.domain.model.CommissionTotals;
+import com.sgi.transaction.domain.model.DailyBalance;
 import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.domain.model.TransactionCursor;
+import com.sgi.transaction.domain.model.TransactionFields;
+import com.sgi.transaction.domain.model.TransactionFilter;
+import com.sgi.transaction.infrastructure.dto.Granularity;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
 import com.sgi.transaction.infrastructure.dto.TransactionResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Interface that defines the contract for transaction repository operations.
@@ -16,16 +25,66 @@ public interface TransactionRepository {
 
     Mono<TransactionResponse> save(Transaction transaction);
 
+    Flux<TransactionBatchResult> insertAll(List<Transaction> transactions);
+
     Mono<Transaction> findById(String id);
 
-    Flux<TransactionResponse> findAll(String productId, String cardId, Integer page, Integer size);
+    /**
+     * Reads only the given fields of a transaction. Projected reads bypass the id cache.
+     *
+     * @param id Identifier of the transaction.
+     * @param fields Fields to read.
+     * @return The partially populated transaction, or empty if none had this id.
+     */
+    Mono<Transaction> findById(String id, TransactionFields fields);
+
+    Mono<Boolean> existsById(String id);
+
+    /**
+     * Writes the non-null fields of {@code changes} in one atomic update.
+     *
+     * @param id Identifier of the transaction.
+     * @param changes Fields to set.
+     * @param expectedUpdatedDate When not null, the update only applies if the stored updatedDate still has this value.
+     * @return The transaction as it was before the update, or empty if nothing matched.
+     */
+    Mono<Transaction> patch(String id, Transaction changes, Instant expectedUpdatedDate);
+
+    Flux<TransactionResponse> findAll(String productId, String cardId, Integer page, Integer size, TransactionFields fields);
+
+    Flux<TransactionResponse> findAll(String productId, String cardId, TransactionCursor cursor, Integer size, TransactionFields fields);
+
+    /**
+     * Removes a transaction in a single round trip.
+     *
+     * @param id Identifier of the transaction.
+     * @return The removed transaction, or empty if none had this id.
+     */
+    Mono<Transaction> deleteById(String id);
+
+    /**
+     * Removes the matching transactions in bounded chunks.
+     *
+     * @param filter Filter of the transactions to remove.
+     * @return Each chunk of removed transactions, once it is gone from the database.
+     */
+    Flux<List<Transaction>> deleteAll(TransactionFilter filter);
 
-    Mono<Void> delete(Transaction transaction);
+    Flux<TransactionResponse> getTransactionsByAccountId(String accountId, TransactionFields fields);
 
-    Flux<TransactionResponse> getTransactionsByAccountId(String accountId);
+    Flux<TransactionResponse> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate, TransactionFields fields);
 
-    Flux<TransactionResponse> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate);
+    /**
+     * Totals the commissions of a product in the database, one row per day, week or month of the period.
+     *
+     * @param productId Identifier of the product.
+     * @param startDate First day of the period.
+     * @param endDate Last day of the period.
+     * @param granularity Size of the buckets.
+     * @return The buckets with at least one commission, in ascending order.
+     */
+    Flux<CommissionTotals> aggregateCommissions(String productId, LocalDate startDate, LocalDate endDate, Granularity granularity);
 
-    Flux<TransactionResponse> getDailyAverageBalancesForClient(String clientId, LocalDate startDate, LocalDate endDate);
+    Flux<DailyBalance> aggregateDailyBalancesForClient(String clientId, LocalDate startDate, LocalDate endDate);
 
 }
@@ -13,7 +13,18 @@ import org.springframework.http.HttpStatus;
 @AllArgsConstructor
 public enum CustomError {
 
-    E_TRANSACTION_NOT_FOUND(new ApiError(HttpStatus.NOT_FOUND, "TRAN-001", "Transaction not found"));
+    E_TRANSACTION_NOT_FOUND(new ApiError(HttpStatus.NOT_FOUND, "TRAN-001", "Transaction not found")),
+    E_INVALID_CURSOR(new ApiError(HttpStatus.BAD_REQUEST, "TRAN-002", "Invalid pagination cursor")),
+    E_TRANSACTION_NOT_CREATED(new ApiError(HttpStatus.UNPROCESSABLE_ENTITY, "TRAN-003", "Transaction could not be created")),
+    E_TRANSACTION_CONFLICT(new ApiError(HttpStatus.CONFLICT, "TRAN-004", "Transaction was modified concurrently")),
+    E_EMPTY_DELETE_FILTER(new ApiError(HttpStatus.BAD_REQUEST, "TRAN-005", "At least one filter is required to delete transactions")),
+    E_INVALID_FIELDS(new ApiError(HttpStatus.BAD_REQUEST, "TRAN-006", "Unknown field or profile in the fields parameter")),
+    E_AMOUNT_OVERFLOW(new ApiError(HttpStatus.UNPROCESSABLE_ENTITY, "TRAN-007", "Amount total exceeds the supported range")),
+    E_PRODUCT_SUMMARY_NOT_FOUND(new ApiError(HttpStatus.NOT_FOUND, "TRAN-008", "No summary for this product")),
+    E_IDEMPOTENCY_KEY_IN_PROGRESS(new ApiError(HttpStatus.CONFLICT, "TRAN-009", "A request with this Idempotency-Key is still running")),
+    E_IDEMPOTENCY_KEY_REUSED(new ApiError(HttpStatus.UNPROCESSABLE_ENTITY, "TRAN-010", "Idempotency-Key was already used with a different request")),
+    E_TOO_MANY_REQUESTS(new ApiError(HttpStatus.TOO_MANY_REQUESTS, "TRAN-011", "Too many requests, retry after the Retry-After delay")),
+    E_DEADLINE_EXCEEDED(new ApiError(HttpStatus.GATEWAY_TIMEOUT, "TRAN-012", "The request did not complete before its deadline"));
 
     private final ApiError error;
 }
@@ -0,0 +1,102 @@
+package com.sgi.transaction.infrastructure.admission;
+
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Limit of requests in flight that follows the latency of Mongo commands, in the manner of a gradient limiter.
+ * A fast moving average of the latency is compared with a slow one that stands for the latency Mongo has
+ * when it is not overloaded. While the recent latency stays within the tolerance of that baseline the limit grows
+ * by its square root on each sample; once Mongo slows down the limit shrinks in proportion, down to half per sample.
+ * The limit only grows while at least half of it is in flight, so a lightly loaded service does not drift
+ * to the maximum limit before Mongo is ever tested at it.
+ * The averages and the limit are swapped together with a compare-and-set, so samples from every Mongo
+ * connection update them without a lock.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_WEIGHT = 0.1;
+
+    private static final double LONG_WEIGHT = 0.001;
+
+    private final TransactionProperties.Admission.Concurrency properties;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicReference<State> state;
+
+    /**
+     * Creates the limit at its initial value.
+     *
+     * @param properties The concurrency options.
+     */
+    public AdaptiveConcurrencyLimit(TransactionProperties.Admission.Concurrency properties) {
+        this.properties = properties;
+        this.state = new AtomicReference<>(new State(properties.getInitialLimit(), 0, 0));
+    }
+
+    /**
+     * Admits a request if fewer than the limit are in flight. An admitted request must be released.
+     *
+     * @return Whether the request is admitted.
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) getLimit()) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Updates the limit with the duration of a Mongo command.
+     *
+     * @param latencyNanos Duration of the command in nanoseconds.
+     */
+    public void onSample(long latencyNanos) {
+        state.updateAndGet(current -> next(current, latencyNanos));
+    }
+
+    private State next(State current, long latencyNanos) {
+        if (current.getLongLatency() == 0) {
+            return new State(current.getLimit(), latencyNanos, latencyNanos);
+        }
+        double shortLatency = current.getShortLatency() + (latencyNanos - current.getShortLatency()) * SHORT_WEIGHT;
+        double longLatency = current.getLongLatency() + (latencyNanos - current.getLongLatency()) * LONG_WEIGHT;
+        double limit = current.getLimit();
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getTolerance() * longLatency / shortLatency));
+        double target = limit * gradient + Math.sqrt(limit);
+        if (target > limit && inFlight.get() < limit / 2) {
+            return new State(limit, shortLatency, longLatency);
+        }
+        double smoothed = limit + (target - limit) * properties.getSmoothing();
+        return new State(Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), smoothed)), shortLatency, longLatency);
+    }
+
+    public double getLimit() {
+        return state.get().getLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class State {
+        private final double limit;
+        private final double shortLatency;
+        private final double longLatency;
+    }
+}
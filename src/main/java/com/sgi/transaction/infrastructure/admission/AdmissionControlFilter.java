@@ -0,0 +1,154 @@
+package com.sgi.transaction.infrastructure.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.dto.ErrorResponse;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Admits or sheds API requests before they reach the service and Mongo.
+ * The operation of a request is resolved by the {@link OperationResolver}.
+ * Each identified client has a token bucket per operation with a configured rate, and every operation shares the
+ * {@link AdaptiveConcurrencyLimit}. A request over either limit is answered right away with a 429 and a
+ * Retry-After header. Requests that do not map to a controller method, such as actuator ones, are not limited.
+ * A request whose client cannot be identified is only subject to the concurrency limit: behind a gateway the caller
+ * address would put every client in the same bucket.
+ */
+public class AdmissionControlFilter implements WebFilter, Ordered {
+
+    public static final String COUNTER = "transaction.admission";
+
+    private final OperationResolver operationResolver;
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final TransactionProperties.Admission properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Cache<String, TokenBucket> buckets;
+
+    /**
+     * Creates the filter and registers the gauges of the concurrency limit.
+     *
+     * @param operationResolver Resolves the operation of a request.
+     * @param concurrencyLimit The shared limit of requests in flight.
+     * @param properties The admission options.
+     * @param objectMapper Mapper the error body is written with.
+     * @param meterRegistry Registry where the admission metrics are published.
+     */
+    public AdmissionControlFilter(OperationResolver operationResolver, AdaptiveConcurrencyLimit concurrencyLimit,
+                                  TransactionProperties.Admission properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.operationResolver = operationResolver;
+        this.concurrencyLimit = concurrencyLimit;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumClients())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+        Gauge.builder(COUNTER + ".concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .register(meterRegistry);
+        Gauge.builder(COUNTER + ".concurrency.in.flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 100;
+    }
+
+    /**
+     * Admits the request when it has an operation, or lets it through when it has none.
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        return operationResolver.resolve(exchange)
+                .flatMap(operation -> operation.isPresent()
+                        ? admit(operation.get(), exchange, chain)
+                        : chain.filter(exchange));
+    }
+
+    private Mono<Void> admit(String operation, ServerWebExchange exchange, WebFilterChain chain) {
+        TransactionProperties.Admission.Rate rate = properties.getRates().get(operation);
+        Optional<String> client = clientOf(exchange);
+        if (rate != null && client.isPresent()) {
+            long now = System.nanoTime();
+            long waitNanos = buckets.get(operation + ":" + client.get(),
+                    key -> new TokenBucket(rate.getRequestsPerSecond(), rate.getBurst(), now)).tryAcquire(now);
+            if (waitNanos > 0) {
+                return reject(exchange, operation, "rate", Duration.ofNanos(waitNanos));
+            }
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            return reject(exchange, operation, "concurrency", properties.getConcurrency().getRetryAfter());
+        }
+        count(operation, "admitted", "none");
+        return chain.filter(exchange).doFinally(signal -> concurrencyLimit.release());
+    }
+
+    /**
+     * Identifies the client by its header, then by the clientId or productId of the request.
+     */
+    private Optional<String> clientOf(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        Map<String, String> variables = exchange.getAttributeOrDefault(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of());
+        return Stream.of(request.getHeaders().getFirst(properties.getClientHeader()),
+                        variables.get("clientId"),
+                        variables.get("productId"),
+                        request.getQueryParams().getFirst("productId"))
+                .filter(Objects::nonNull)
+                .findFirst();
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, String operation, String reason, Duration retryAfter) {
+        count(operation, "rejected", reason);
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000)));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        CustomException error = new CustomException(CustomError.E_TOO_MANY_REQUESTS);
+        ErrorResponse body = new ErrorResponse(error.getStatus(), error.getCode(), error.getMessage(),
+                error.getTimestamp().atOffset(ZoneOffset.UTC));
+        return response.writeWith(Mono.fromCallable(() -> response.bufferFactory().wrap(objectMapper.writeValueAsBytes(body))));
+    }
+
+    private void count(String operation, String outcome, String reason) {
+        Counter.builder(COUNTER)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
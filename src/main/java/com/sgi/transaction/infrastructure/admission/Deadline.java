@@ -0,0 +1,145 @@
+package com.sgi.transaction.infrastructure.admission;
+
+import com.mongodb.MongoExecutionTimeoutException;
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Point in time by which a request must be answered, carried in the Reactor context of the request.
+ * Queries run through {@link #flux} or {@link #mono} are cancelled when it passes, which closes their cursor,
+ * and are given the time left as their maxTimeMS so Mongo stops them on its side as well.
+ * A query past its deadline fails with a 504.
+ * A streamed response has no overall deadline, only an idle one: each result must follow the previous one in time.
+ */
+public final class Deadline {
+
+    /** Deadline of a request without any, which never passes. */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE, null);
+
+    private static final Duration MINIMUM_REMAINING = Duration.ofMillis(1);
+
+    private final long expiresAt;
+
+    private final Duration idleTimeout;
+
+    private Deadline(long expiresAt, Duration idleTimeout) {
+        this.expiresAt = expiresAt;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Creates the deadline that passes after the timeout.
+     *
+     * @param timeout Time from now.
+     * @return The deadline.
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos(), null);
+    }
+
+    /**
+     * Creates the deadline of a streamed response, which only bounds the wait for each result.
+     *
+     * @param timeout Longest wait for the first result and between two results.
+     * @return The deadline.
+     */
+    public static Deadline idle(Duration timeout) {
+        return new Deadline(Long.MAX_VALUE, timeout);
+    }
+
+    /**
+     * Reads the deadline of the current request.
+     *
+     * @param context The Reactor context.
+     * @return The deadline, or {@link #NONE}.
+     */
+    public static Deadline from(ContextView context) {
+        return context.getOrDefault(Deadline.class, NONE);
+    }
+
+    /**
+     * Stores this deadline for everything subscribed downstream of the request.
+     *
+     * @param context The Reactor context.
+     * @return The context with this deadline.
+     */
+    public Context store(Context context) {
+        return context.put(Deadline.class, this);
+    }
+
+    public boolean isBounded() {
+        return expiresAt != Long.MAX_VALUE;
+    }
+
+    public boolean isExpired() {
+        return isBounded() && System.nanoTime() - expiresAt >= 0;
+    }
+
+    /**
+     * Time left before the deadline, never below one millisecond since a maxTimeMS of 0 means no limit.
+     *
+     * @return The time left.
+     */
+    public Duration remaining() {
+        Duration remaining = Duration.ofNanos(expiresAt - System.nanoTime());
+        return remaining.compareTo(MINIMUM_REMAINING) < 0 ? MINIMUM_REMAINING : remaining;
+    }
+
+    /**
+     * Runs a query under the deadline of the current request. The query is cancelled when the deadline passes,
+     * each result rearming the timeout with the time left, and a Mongo maxTimeMS error is reported as the deadline
+     * being exceeded. Under an idle deadline, each result rearms the full idle timeout instead.
+     *
+     * @param query Builds the query from the deadline.
+     * @param <T> The type of the results.
+     * @return The results.
+     */
+    public static <T> Flux<T> flux(Function<Deadline, Flux<T>> query) {
+        return Flux.deferContextual(context -> {
+            Deadline deadline = from(context);
+            if (deadline.idleTimeout != null) {
+                return query.apply(deadline).timeout(deadline.idleTimeout, Flux.error(Deadline::exceeded));
+            }
+            if (!deadline.isBounded()) {
+                return query.apply(deadline);
+            }
+            if (deadline.isExpired()) {
+                return Flux.error(exceeded());
+            }
+            return query.apply(deadline)
+                    .timeout(Mono.delay(deadline.remaining()), result -> Mono.delay(deadline.remaining()), Flux.error(Deadline::exceeded))
+                    .onErrorMap(Deadline::isMaxTimeError, ex -> exceeded());
+        });
+    }
+
+    /**
+     * Runs a query with at most one result under the deadline of the current request, as {@link #flux} does.
+     *
+     * @param query Builds the query from the deadline.
+     * @param <T> The type of the result.
+     * @return The result.
+     */
+    public static <T> Mono<T> mono(Function<Deadline, Mono<T>> query) {
+        return flux(deadline -> query.apply(deadline).flux()).singleOrEmpty();
+    }
+
+    private static CustomException exceeded() {
+        return new CustomException(CustomError.E_DEADLINE_EXCEEDED);
+    }
+
+    private static boolean isMaxTimeError(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoExecutionTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
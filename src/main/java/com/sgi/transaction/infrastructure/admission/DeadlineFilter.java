@@ -0,0 +1,95 @@
+package com.sgi.transaction.infrastructure.admission;
+
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Gives each API read the {@link Deadline} of its operation, configured per operationId or by default.
+ * A client can shorten it with the timeout header, in milliseconds, but never extend it.
+ * The deadline starts when the request is received, so time spent before the query counts.
+ * Writes, including the reads they make first, get no deadline, so a timeout never leaves a write half-reported.
+ * A request for an NDJSON or server-sent events stream gets the idle deadline of streams instead, since a long
+ * stream that keeps producing should not be cut off partway through.
+ */
+public class DeadlineFilter implements WebFilter, Ordered {
+
+    private static final List<MediaType> STREAMING_MEDIA_TYPES = List.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM);
+
+    private final OperationResolver operationResolver;
+
+    private final TransactionProperties.Deadlines properties;
+
+    public DeadlineFilter(OperationResolver operationResolver, TransactionProperties.Deadlines properties) {
+        this.operationResolver = operationResolver;
+        this.properties = properties;
+    }
+
+    /**
+     * Runs after the admission control, so a rejected request does not resolve its deadline.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 200;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!properties.isEnabled() || !isRead(exchange)) {
+            return chain.filter(exchange);
+        }
+        if (isStreaming(exchange)) {
+            return isPositive(properties.getStreamIdleTimeout())
+                    ? chain.filter(exchange).contextWrite(Deadline.idle(properties.getStreamIdleTimeout())::store)
+                    : chain.filter(exchange);
+        }
+        long receivedAt = System.nanoTime();
+        return operationResolver.resolve(exchange)
+                .flatMap(operation -> operation
+                        .map(name -> timeoutOf(name, exchange))
+                        .filter(DeadlineFilter::isPositive)
+                        .map(timeout -> chain.filter(exchange)
+                                .contextWrite(Deadline.after(timeout.minusNanos(System.nanoTime() - receivedAt))::store))
+                        .orElseGet(() -> chain.filter(exchange)));
+    }
+
+    private Duration timeoutOf(String operation, ServerWebExchange exchange) {
+        Duration configured = properties.getOperations().getOrDefault(operation, properties.getDefaultTimeout());
+        Optional<Duration> requested = Optional.ofNullable(exchange.getRequest().getHeaders().getFirst(properties.getHeader()))
+                .flatMap(DeadlineFilter::parseMillis);
+        return requested.filter(timeout -> !isPositive(configured) || timeout.compareTo(configured) < 0)
+                .orElse(configured);
+    }
+
+    private boolean isRead(ServerWebExchange exchange) {
+        HttpMethod method = exchange.getRequest().getMethod();
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method);
+    }
+
+    private boolean isStreaming(ServerWebExchange exchange) {
+        return exchange.getRequest().getHeaders().getAccept().stream()
+                .anyMatch(accepted -> STREAMING_MEDIA_TYPES.stream().anyMatch(accepted::equalsTypeAndSubtype));
+    }
+
+    private static boolean isPositive(Duration timeout) {
+        return !timeout.isNegative() && !timeout.isZero();
+    }
+
+    private static Optional<Duration> parseMillis(String value) {
+        try {
+            long millis = Long.parseLong(value.trim());
+            return millis > 0 ? Optional.of(Duration.ofMillis(millis)) : Optional.empty();
+        } catch (NumberFormatException ex) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.sgi.transaction.infrastructure.admission;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Resolves the operation of a request, which is the name of the controller method it maps to and so its operationId.
+ * The result is kept on the exchange, so the filters that need it look the handler up once per request.
+ */
+public class OperationResolver {
+
+    static final String OPERATION_ATTRIBUTE = OperationResolver.class.getName() + ".operation";
+
+    private final HandlerMapping handlerMapping;
+
+    public OperationResolver(HandlerMapping handlerMapping) {
+        this.handlerMapping = handlerMapping;
+    }
+
+    /**
+     * Resolves the operation of the request. Mapping errors resolve to none and are left to the dispatcher, which reports them.
+     *
+     * @param exchange The request.
+     * @return The operationId, or empty when the request does not map to a controller method, such as actuator ones.
+     */
+    public Mono<Optional<String>> resolve(ServerWebExchange exchange) {
+        Optional<String> resolved = exchange.getAttribute(OPERATION_ATTRIBUTE);
+        if (resolved != null) {
+            return Mono.just(resolved);
+        }
+        return handlerMapping.getHandler(exchange)
+                .onErrorResume(ex -> Mono.empty())
+                .ofType(HandlerMethod.class)
+                .map(handler -> Optional.of(handler.getMethod().getName()))
+                .defaultIfEmpty(Optional.empty())
+                .doOnNext(operation -> exchange.getAttributes().put(OPERATION_ATTRIBUTE, operation));
+    }
+}
@@ -0,0 +1,40 @@
+package com.sgi.transaction.infrastructure.admission;
+
+/**
+ * Token bucket refilled continuously at a fixed rate up to its burst.
+ * Each admitted request takes one token; without a token the request is rejected
+ * with the time until the next one is available.
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long refilledAt;
+
+    TokenBucket(double requestsPerSecond, int burst, long now) {
+        this.tokensPerNano = requestsPerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param now Current time in nanoseconds, from {@link System#nanoTime()}.
+     * @return 0 when a token was taken, otherwise the nanoseconds until one is available.
+     */
+    synchronized long tryAcquire(long now) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
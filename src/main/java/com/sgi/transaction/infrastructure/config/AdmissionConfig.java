@@ -0,0 +1,114 @@
+package com.sgi.transaction.infrastructure.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import com.sgi.transaction.infrastructure.admission.AdaptiveConcurrencyLimit;
+import com.sgi.transaction.infrastructure.admission.AdmissionControlFilter;
+import com.sgi.transaction.infrastructure.admission.DeadlineFilter;
+import com.sgi.transaction.infrastructure.admission.OperationResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control configuration.
+ * Feeds the duration of the Mongo reads and writes to the concurrency limit and registers the filters that admit
+ * a request and give it its deadline.
+ */
+@Configuration
+public class AdmissionConfig {
+
+    private static final Set<String> SAMPLED_COMMANDS = Set.of("find", "insert", "update", "delete", "findAndModify");
+
+    /**
+     * Creates the limit of requests in flight shared by every operation.
+     *
+     * @param properties Application properties.
+     * @return The concurrency limit.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimit adaptiveConcurrencyLimit(TransactionProperties properties) {
+        return new AdaptiveConcurrencyLimit(properties.getAdmission().getConcurrency());
+    }
+
+    /**
+     * Samples the latency of Mongo commands into the concurrency limit while admission control is enabled.
+     * Only the point reads and writes are sampled: aggregate runs the reports and the backfill, whose duration
+     * follows the size of the period rather than the load of Mongo, and getMore waits for new events on the
+     * change stream cursor.
+     *
+     * @param concurrencyLimit The concurrency limit.
+     * @param properties Application properties.
+     * @return The client settings customizer.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoLatencyCustomizer(AdaptiveConcurrencyLimit concurrencyLimit, TransactionProperties properties) {
+        return settings -> {
+            if (properties.getAdmission().isEnabled()) {
+                settings.addCommandListener(new CommandListener() {
+                    @Override
+                    public void commandSucceeded(CommandSucceededEvent event) {
+                        if (SAMPLED_COMMANDS.contains(event.getCommandName())) {
+                            concurrencyLimit.onSample(event.getElapsedTime(TimeUnit.NANOSECONDS));
+                        }
+                    }
+
+                    @Override
+                    public void commandFailed(CommandFailedEvent event) {
+                        if (SAMPLED_COMMANDS.contains(event.getCommandName())) {
+                            concurrencyLimit.onSample(event.getElapsedTime(TimeUnit.NANOSECONDS));
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Creates the resolver of the operationId of a request, shared by the admission and deadline filters.
+     *
+     * @param handlerMapping Mapping of the controller methods.
+     * @return The resolver.
+     */
+    @Bean
+    public OperationResolver operationResolver(@Qualifier("requestMappingHandlerMapping") HandlerMapping handlerMapping) {
+        return new OperationResolver(handlerMapping);
+    }
+
+    /**
+     * Creates the admission control filter.
+     *
+     * @param operationResolver Resolver of the operation of a request.
+     * @param concurrencyLimit The concurrency limit.
+     * @param properties Application properties.
+     * @param objectMapper Mapper of the error bodies.
+     * @param meterRegistry Registry of the admission metrics.
+     * @return The filter.
+     */
+    @Bean
+    public AdmissionControlFilter admissionControlFilter(OperationResolver operationResolver, AdaptiveConcurrencyLimit concurrencyLimit,
+                                                         TransactionProperties properties, ObjectMapper objectMapper,
+                                                         MeterRegistry meterRegistry) {
+        return new AdmissionControlFilter(operationResolver, concurrencyLimit, properties.getAdmission(), objectMapper, meterRegistry);
+    }
+
+    /**
+     * Creates the filter that gives each request the deadline of its operation.
+     *
+     * @param operationResolver Resolver of the operation of a request.
+     * @param properties Application properties.
+     * @return The filter.
+     */
+    @Bean
+    public DeadlineFilter deadlineFilter(OperationResolver operationResolver, TransactionProperties properties) {
+        return new DeadlineFilter(operationResolver, properties.getDeadlines());
+    }
+}
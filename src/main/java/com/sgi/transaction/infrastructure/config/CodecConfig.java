@@ -0,0 +1,78 @@
+package com.sgi.transaction.infrastructure.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.accept.RequestedContentTypeResolverBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registers binary codecs next to JSON, so clients sending {@code Accept: application/cbor} or
+ * {@code Accept: application/x-jackson-smile} receive the same payload in a compact binary form.
+ * Both mappers share the settings of {@link JacksonConfig}. The media types are passed explicitly,
+ * since the Jackson codecs otherwise claim the JSON types.
+ */
+@Configuration
+public class CodecConfig implements WebFluxConfigurer {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private static final MediaType STREAM_SMILE = MediaType.parseMediaType("application/stream+x-jackson-smile");
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        ObjectMapper cborMapper = JacksonConfig.configure(new CBORMapper());
+        ObjectMapper smileMapper = JacksonConfig.configure(new SmileMapper());
+        configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+        configurer.customCodecs().register(new CborListEncoder(cborMapper));
+        configurer.customCodecs().register(new Jackson2SmileDecoder(smileMapper, SMILE, STREAM_SMILE));
+        configurer.customCodecs().register(new Jackson2SmileEncoder(smileMapper, SMILE, STREAM_SMILE));
+    }
+
+    /**
+     * Answers JSON to clients that send no Accept header or accept any type. Handlers list the binary
+     * types among the types they produce, which would otherwise compete with JSON for {@code *}{@code /*}.
+     */
+    @Override
+    public void configureContentTypeResolver(RequestedContentTypeResolverBuilder builder) {
+        builder.headerResolver();
+        builder.fixedResolver(MediaType.APPLICATION_JSON, MediaType.ALL);
+    }
+
+    /**
+     * CBOR encoder that also writes a Flux, as a single array like the JSON encoder does.
+     * {@link Jackson2CborEncoder} only encodes single values.
+     */
+    static class CborListEncoder extends Jackson2CborEncoder {
+
+        CborListEncoder(ObjectMapper objectMapper) {
+            super(objectMapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+            return Flux.from(inputStream)
+                    .collectList()
+                    .map(values -> encodeValue(values, bufferFactory, listType, mimeType, hints))
+                    .flux();
+        }
+    }
+}
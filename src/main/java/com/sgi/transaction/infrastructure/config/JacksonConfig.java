@@ -24,7 +24,18 @@ public class JacksonConfig {
      */
     @Bean
     public ObjectMapper objectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
+        return configure(new ObjectMapper());
+    }
+
+    /**
+     * Applies the serialization settings of the JSON mapper to a mapper of another format,
+     * so CBOR and Smile payloads carry the same fields as JSON.
+     *
+     * @param objectMapper The mapper to configure.
+     * @param <M> The type of the mapper.
+     * @return The same mapper.
+     */
+    public static <M extends ObjectMapper> M configure(M objectMapper) {
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
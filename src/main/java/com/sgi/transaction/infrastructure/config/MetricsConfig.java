@@ -0,0 +1,45 @@
+package com.sgi.transaction.infrastructure.config;
+
+import com.sgi.transaction.application.service.MeteredTransactionService;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Metrics configuration that the management properties cannot express.
+ * Adds the service level objectives of each service operation to its timer, so a p99 target
+ * can be checked per operation on the same "transaction.service" histogram.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Applies the per-operation objectives of transaction.metrics.slo to the service timer.
+     *
+     * @param properties Application properties.
+     * @return The meter filter.
+     */
+    @Bean
+    public MeterFilter serviceLevelObjectivesFilter(TransactionProperties properties) {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                List<Duration> objectives = MeteredTransactionService.TIMER.equals(id.getName())
+                        ? properties.getMetrics().getSlo().get(id.getTag("operation"))
+                        : null;
+                if (objectives == null || objectives.isEmpty()) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .serviceLevelObjectives(objectives.stream().mapToDouble(Duration::toNanos).toArray())
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
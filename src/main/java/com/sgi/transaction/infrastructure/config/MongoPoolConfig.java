@@ -0,0 +1,65 @@
+package com.sgi.transaction.infrastructure.config;
+
+import com.sgi.transaction.infrastructure.pool.ConnectionPoolHealthIndicator;
+import com.sgi.transaction.infrastructure.pool.ConnectionPoolMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mongo connection pool configuration.
+ * Applies the pool and socket options of transaction.pool on top of the connection string, and instruments
+ * the pools with the {@link ConnectionPoolMonitor} and its health indicator.
+ */
+@Configuration
+public class MongoPoolConfig {
+
+    /**
+     * Creates the monitor of the connection pools.
+     *
+     * @param properties Application properties.
+     * @param meterRegistry Registry of the pool metrics.
+     * @return The monitor.
+     */
+    @Bean
+    public ConnectionPoolMonitor connectionPoolMonitor(TransactionProperties properties, MeterRegistry meterRegistry) {
+        return new ConnectionPoolMonitor(properties.getPool(), meterRegistry);
+    }
+
+    /**
+     * Sizes the pools, bounds the wait for a connection and the socket timeouts, and adds the monitor to the pools.
+     *
+     * @param properties Application properties.
+     * @param monitor Monitor of the pools.
+     * @return The client settings customizer.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoPoolCustomizer(TransactionProperties properties, ConnectionPoolMonitor monitor) {
+        TransactionProperties.Pool pool = properties.getPool();
+        return settings -> settings
+                .applyToConnectionPoolSettings(builder -> builder
+                        .minSize(pool.getMinSize())
+                        .maxSize(pool.getMaxSize())
+                        .maxWaitTime(pool.getMaxWaitTime().toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(pool.getMaxConnectionIdleTime().toMillis(), TimeUnit.MILLISECONDS)
+                        .addConnectionPoolListener(monitor))
+                .applyToSocketSettings(builder -> builder
+                        .connectTimeout(pool.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                        .readTimeout(pool.getSocketTimeout().toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Creates the "mongoPool" health contributor.
+     *
+     * @param monitor Monitor of the pools.
+     * @param properties Application properties.
+     * @return The health indicator.
+     */
+    @Bean
+    public ConnectionPoolHealthIndicator mongoPoolHealthIndicator(ConnectionPoolMonitor monitor, TransactionProperties properties) {
+        return new ConnectionPoolHealthIndicator(monitor, properties.getPool());
+    }
+}
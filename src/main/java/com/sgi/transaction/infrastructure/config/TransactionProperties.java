@@ -0,0 +1,360 @@
+package com.sgi.transaction.infrastructure.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Application properties under the "transaction" prefix.
+ * Groups the tuning options of the transaction service by feature.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "transaction")
+public class TransactionProperties {
+
+    private Reports reports = new Reports();
+
+    private Streaming streaming = new Streaming();
+
+    private Batch batch = new Batch();
+
+    private Ingest ingest = new Ingest();
+
+    private Cache cache = new Cache();
+
+    private Coalescing coalescing = new Coalescing();
+
+    private Metrics metrics = new Metrics();
+
+    private Partitioning partitioning = new Partitioning();
+
+    private Summary summary = new Summary();
+
+    private Idempotency idempotency = new Idempotency();
+
+    private Admission admission = new Admission();
+
+    private Deadlines deadlines = new Deadlines();
+
+    private ReadRouting readRouting = new ReadRouting();
+
+    private Pool pool = new Pool();
+
+    /**
+     * Options of the report endpoints.
+     */
+    @Getter
+    @Setter
+    public static class Reports {
+
+        /**
+         * Reads the average balance report from the daily balance rollup instead of raw transactions.
+         * The rollup only holds transactions written since it was deployed, so enable it once it has been backfilled.
+         * It is kept up to date on every create, update and delete whatever this option says, so it stays current for when it is read.
+         */
+        private boolean dailyBalanceRollup = false;
+
+        /** Time zone used to cut transactions into report days. Changing it requires rebuilding the rollup. */
+        private ZoneId timeZone = ZoneId.of("UTC");
+    }
+
+    /**
+     * Options of the list endpoints that stream their results.
+     */
+    @Getter
+    @Setter
+    public static class Streaming {
+
+        /** Number of documents fetched from the Mongo cursor per batch. */
+        private int cursorBatchSize = 500;
+    }
+
+    /**
+     * Options of the bulk creation and bulk delete endpoints.
+     */
+    @Getter
+    @Setter
+    public static class Batch {
+
+        /** Number of transactions written to Mongo in a single unordered bulk insert. */
+        private int chunkSize = 500;
+
+        /** Number of transactions found and then removed by id in each round of a bulk delete. */
+        private int deleteChunkSize = 500;
+    }
+
+    /**
+     * Options of the write-coalescing buffer used by single transaction inserts.
+     */
+    @Getter
+    @Setter
+    public static class Ingest {
+
+        /** Collects concurrent inserts and writes them together with a single bulk insert. */
+        private boolean coalescing = false;
+
+        /** Number of buffered inserts that triggers a flush. */
+        private int maxBatchSize = 100;
+
+        /** Longest time an insert waits in the buffer before it is flushed. */
+        private Duration maxLatency = Duration.ofMillis(2);
+
+        /** Number of bulk inserts allowed in flight at the same time. */
+        private int maxConcurrentFlushes = 4;
+    }
+
+    /**
+     * Options of the in-process cache of transactions by id.
+     */
+    @Getter
+    @Setter
+    public static class Cache {
+
+        /** Serves id lookups from memory. Other instances' writes are seen after the time to live. */
+        private boolean enabled = false;
+
+        /** Maximum number of cached transactions. */
+        private long maximumSize = 10_000;
+
+        /** Time a cached transaction is served before it is read again from Mongo. */
+        private Duration timeToLive = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Options of the sharing of identical report requests in flight.
+     */
+    @Getter
+    @Setter
+    public static class Coalescing {
+
+        /** Lets identical concurrent report requests share one execution. */
+        private boolean enabled = true;
+
+        /**
+         * Single-valued report operations, by operation id, whose identical requests are shared. Streamed lists are never shared.
+         * A shared execution runs under the deadline configured for its operation, not under the deadline of the request that started it.
+         */
+        private Set<String> operations = Set.of("getDailyAverageBalancesForClient", "getCommissionSummary");
+
+        /** Longest time after its start that an execution can still be joined. */
+        private Duration maxShareWindow = Duration.ofSeconds(2);
+    }
+
+    /**
+     * Options of the service metrics.
+     */
+    @Getter
+    @Setter
+    public static class Metrics {
+
+        /** Service level objectives of the "transaction.service" timer, by operation name. */
+        private Map<String, List<Duration>> slo = Map.of();
+    }
+
+    /**
+     * Options of the storage of transactions in one collection per month.
+     */
+    @Getter
+    @Setter
+    public static class Partitioning {
+
+        /**
+         * Writes each transaction to the collection of the UTC month of its createdDate. Existing data is not moved, and reads
+         * only look at the monthly collections: move the documents of the "transaction" collection to their months before enabling it.
+         */
+        private boolean enabled = false;
+
+        /** How long the list of monthly collections is reused. A month created by another instance is read after at most this long. */
+        private Duration namesRefreshInterval = Duration.ofMinutes(1);
+    }
+
+    /**
+     * Options of the per product running totals maintained from the change stream of the transactions.
+     */
+    @Getter
+    @Setter
+    public static class Summary {
+
+        /** Tails the change stream and serves the summary endpoint. Requires a replica set. */
+        private boolean enabled = false;
+
+        /** Longest time between two saves of the change stream position. */
+        private Duration checkpointInterval = Duration.ofSeconds(1);
+
+        /** Reopenings of a failing change stream before the projection stops and reports DOWN. A saved checkpoint resets the count. */
+        private long maxRetries = 10;
+    }
+
+    /**
+     * Options of the Idempotency-Key header of the create and update operations.
+     */
+    @Getter
+    @Setter
+    public static class Idempotency {
+
+        /** Replays the stored response to retries sent with the same Idempotency-Key. */
+        private boolean enabled = true;
+
+        /** Time a completed key and its response are kept, which is the window in which retries are deduplicated. */
+        private Duration timeToLive = Duration.ofHours(24);
+
+        /** Time a running execution holds its key, after which a retry runs again if it never completed. */
+        private Duration claimTimeToLive = Duration.ofSeconds(30);
+
+        /** Longest time a duplicate waits for the first execution before it is answered with a conflict. */
+        private Duration waitTimeout = Duration.ofSeconds(10);
+
+        /** Time between two reads of a key that another instance is still executing. */
+        private Duration pollInterval = Duration.ofMillis(50);
+
+        /** Maximum number of completed responses kept in memory in front of Mongo. */
+        private long cacheMaximumSize = 10_000;
+
+        /** Time a completed response is replayed from memory. */
+        private Duration cacheTimeToLive = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Options of the admission control applied to API requests before they reach the service.
+     */
+    @Getter
+    @Setter
+    public static class Admission {
+
+        /** Rejects requests over the per-client rates or the concurrency limit with a 429. */
+        private boolean enabled = false;
+
+        /** Header identifying the client. Without it the clientId or productId of the request is used, and without those no rate applies. */
+        private String clientHeader = "X-Client-Id";
+
+        /** Rate of each client by operation id. Operations without a rate are only subject to the concurrency limit. */
+        private Map<String, Rate> rates = Map.of();
+
+        /** Maximum number of clients whose rate is tracked at the same time. */
+        private long maximumClients = 100_000;
+
+        /** Time after which the rate of an idle client is forgotten and starts again with a full burst. */
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+        private Concurrency concurrency = new Concurrency();
+
+        /**
+         * Token bucket of one client for one operation.
+         */
+        @Getter
+        @Setter
+        public static class Rate {
+
+            /** Requests per second the bucket is refilled with. */
+            private double requestsPerSecond = 10;
+
+            /** Requests a client can send at once after being idle. */
+            private int burst = 20;
+        }
+
+        /**
+         * Options of the global limit of requests in flight, which follows the latency of Mongo commands.
+         */
+        @Getter
+        @Setter
+        public static class Concurrency {
+
+            /** Limit before any Mongo latency is measured. */
+            private int initialLimit = 100;
+
+            /** Lowest limit, kept however slow Mongo gets. */
+            private int minLimit = 10;
+
+            /** Highest limit, reached while Mongo latency stays near its baseline. */
+            private int maxLimit = 1000;
+
+            /** Ratio of recent latency to baseline latency tolerated before the limit decreases. */
+            private double tolerance = 2.0;
+
+            /** Weight of each latency sample in the new limit, between 0 and 1. */
+            private double smoothing = 0.2;
+
+            /** Retry-After sent with a rejection over the concurrency limit. */
+            private Duration retryAfter = Duration.ofSeconds(1);
+        }
+    }
+
+    /**
+     * Options of the deadlines of API reads, applied to their Mongo queries as maxTimeMS and as a Reactor timeout. Writes have none.
+     */
+    @Getter
+    @Setter
+    public static class Deadlines {
+
+        /** Bounds the queries of each request by the deadline of its operation. */
+        private boolean enabled = true;
+
+        /** Header a client sends its own timeout in, in milliseconds. It can only shorten the configured one. */
+        private String header = "X-Request-Timeout";
+
+        /** Deadline of operations without their own. Zero means no deadline. */
+        private Duration defaultTimeout = Duration.ofSeconds(10);
+
+        /** Deadline by operation id. Zero means no deadline. */
+        private Map<String, Duration> operations = Map.of();
+
+        /** Longest wait for the next element of an NDJSON or server-sent events response, which has no overall deadline. Zero means no limit. */
+        private Duration streamIdleTimeout = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Options of the routing of report reads to secondaries.
+     */
+    @Getter
+    @Setter
+    public static class ReadRouting {
+
+        /** Reads the listed operations with secondaryPreferred. */
+        private boolean enabled = true;
+
+        /** Read-only operations routed to secondaries. Writes and lookups by id always read from the primary. */
+        private Set<String> operations = Set.of("daily-average-balances", "commissions", "commission-summary", "all-transactions");
+
+        /** Longest replication lag of a secondary that is still read. Mongo requires at least 90 seconds. */
+        private Duration maxStaleness = Duration.ofSeconds(90);
+    }
+
+    /**
+     * Options of the Mongo connection pools, one per server, applied over those of the connection string.
+     */
+    @Getter
+    @Setter
+    public static class Pool {
+
+        /** Connections each pool keeps open even when idle. */
+        private int minSize = 10;
+
+        /** Most connections of each pool. Operations over it wait in the queue of the pool. */
+        private int maxSize = 100;
+
+        /** Longest time an operation waits for a connection before it fails. */
+        private Duration maxWaitTime = Duration.ofSeconds(2);
+
+        /** Time after which an idle connection is closed. Zero keeps idle connections open. */
+        private Duration maxConnectionIdleTime = Duration.ofMinutes(5);
+
+        /** Longest time to open a connection. */
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /** Longest time to wait for a reply on a socket. Zero means no timeout, queries are bounded by their deadline. */
+        private Duration socketTimeout = Duration.ZERO;
+
+        /** Operations waiting for a connection at which the pools are saturated. */
+        private int saturationThreshold = 10;
+
+        /** Time the pools stay saturated before they are reported as degraded. */
+        private Duration saturationPeriod = Duration.ofSeconds(30);
+    }
+}
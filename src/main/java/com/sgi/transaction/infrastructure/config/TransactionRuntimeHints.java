@@ -0,0 +1,38 @@
+package com.sgi.transaction.infrastructure.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Runtime hints of the classes the AOT processing cannot find from the bean definitions.
+ * The DTOs generated from the OpenAPI contract are only reached through Jackson, so they are scanned from their
+ * package at build time and registered for data binding. The MapStruct implementation is loaded by name
+ * by {@code Mappers.getMapper}, so its constructor is registered too.
+ */
+public class TransactionRuntimeHints implements RuntimeHintsRegistrar {
+
+    static final String DTO_PACKAGE = "com.sgi.transaction.infrastructure.dto";
+
+    static final String MAPPER_IMPLEMENTATION = "com.sgi.transaction.infrastructure.mapper.TransactionMapperImpl";
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    /**
+     * Registers the DTOs for data binding and the mapper implementation for instantiation.
+     */
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.setResourceLoader(new DefaultResourceLoader(classLoader));
+        scanner.addIncludeFilter((reader, factory) -> true);
+        scanner.findCandidateComponents(DTO_PACKAGE).forEach(dto -> bindingRegistrar.registerReflectionHints(hints.reflection(),
+                ClassUtils.resolveClassName(dto.getBeanClassName(), classLoader)));
+        hints.reflection().registerType(TypeReference.of(MAPPER_IMPLEMENTATION), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+    }
+}
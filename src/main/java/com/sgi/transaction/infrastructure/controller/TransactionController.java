@@ -1,10 +1,18 @@
 package com.sgi.transaction.infrastructure.controller;
 
+import com.sgi.transaction.domain.model.TransactionFilter;
 import com.sgi.transaction.domain.ports.in.TransactionService;
 import com.sgi.transaction.infrastructure.dto.AverageReportResponse;
+import com.sgi.transaction.infrastructure.dto.CommissionSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.DeleteTransactionsResponse;
+import com.sgi.transaction.infrastructure.dto.Granularity;
+import com.sgi.transaction.infrastructure.dto.ProductSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
+import com.sgi.transaction.infrastructure.dto.TransactionPatchRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionResponse;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ServerWebExchange;
@@ -12,6 +20,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Controller to handle operations related to transactions.
@@ -19,6 +28,10 @@ import java.time.LocalDate;
 @RestController
 public class TransactionController implements V1Api {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final List<MediaType> STREAMING_MEDIA_TYPES = List.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM);
+
     private final TransactionService transactionService;
 
     public TransactionController(TransactionService transactionService) {
@@ -26,12 +39,18 @@ public class TransactionController implements V1Api {
     }
 
     @Override
-    public Mono<ResponseEntity<TransactionResponse>> createTransaction(Mono<TransactionRequest> transactionRequest, ServerWebExchange exchange) {
-        return transactionService.createTransaction(transactionRequest)
+    public Mono<ResponseEntity<TransactionResponse>> createTransaction(Mono<TransactionRequest> transactionRequest, String idempotencyKey,
+                                                                       ServerWebExchange exchange) {
+        return transactionService.createTransaction(transactionRequest, idempotencyKey)
                 .map(transactionResponse ->
                         ResponseEntity.status(HttpStatus.CREATED).body(transactionResponse));
     }
 
+    @Override
+    public Mono<ResponseEntity<Flux<TransactionBatchResult>>> createTransactions(Flux<TransactionRequest> transactionRequest, ServerWebExchange exchange) {
+        return Mono.fromSupplier(() -> ResponseEntity.ok().body(transactionService.createTransactions(transactionRequest)));
+    }
+
     @Override
     public Mono<ResponseEntity<Void>> deleteTransaction(String id, ServerWebExchange exchange) {
         return transactionService.deleteTransaction(id)
@@ -39,17 +58,50 @@ public class TransactionController implements V1Api {
     }
 
     @Override
-    public Mono<ResponseEntity<Flux<TransactionResponse>>> getAllTransactions(String productId, String cardId, Integer page, Integer size, ServerWebExchange exchange) {
-        return Mono.fromSupplier(() -> ResponseEntity.ok().body(transactionService.getAllTransactions(productId, cardId, page, size)));
+    public Mono<ResponseEntity<DeleteTransactionsResponse>> deleteTransactions(String productId, String cardId, String status,
+                                                                               LocalDate from, LocalDate to, ServerWebExchange exchange) {
+        TransactionFilter filter = TransactionFilter.builder()
+                .productId(productId)
+                .cardId(cardId)
+                .status(status)
+                .from(from)
+                .to(to)
+                .build();
+        return transactionService.deleteTransactions(filter)
+                .map(deletedCount -> ResponseEntity.ok().body(new DeleteTransactionsResponse(deletedCount)));
     }
 
     @Override
-    public Mono<ResponseEntity<Flux<TransactionResponse>>> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate, ServerWebExchange exchange) {
+    public Mono<ResponseEntity<Flux<TransactionResponse>>> getAllTransactions(String productId, String cardId, Integer page, Integer size,
+                                                                              String cursor, String fields, ServerWebExchange exchange) {
+        if (isStreaming(exchange)) {
+            return Mono.fromSupplier(() -> ResponseEntity.ok().body(transactionService.streamAllTransactions(productId, cardId, page, size, cursor, fields)));
+        }
+        return transactionService.getAllTransactions(productId, cardId, page, size, cursor, fields)
+                .map(transactionPage -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (transactionPage.getNextCursor() != null) {
+                        response.header(NEXT_CURSOR_HEADER, transactionPage.getNextCursor());
+                    }
+                    return response.body(Flux.fromIterable(transactionPage.getContent()));
+                });
+    }
+
+    @Override
+    public Mono<ResponseEntity<Flux<TransactionResponse>>> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate,
+                                                                                            String fields, ServerWebExchange exchange) {
         return Mono.fromSupplier(() -> ResponseEntity.ok().body(transactionService
-                        .getCommissionsByProductAndPeriod(productId, startDate, endDate))
+                        .getCommissionsByProductAndPeriod(productId, startDate, endDate, fields))
         );
     }
 
+    @Override
+    public Mono<ResponseEntity<CommissionSummaryResponse>> getCommissionSummary(String productId, LocalDate from, LocalDate to,
+                                                                             Granularity granularity, ServerWebExchange exchange) {
+        return transactionService.getCommissionSummary(productId, from, to, granularity)
+                .map(commissionSummary -> ResponseEntity.ok().body(commissionSummary));
+    }
+
     @Override
     public Mono<ResponseEntity<AverageReportResponse>> getDailyAverageBalancesForClient(String clientId, LocalDate from, LocalDate to, ServerWebExchange exchange) {
         return transactionService.getDailyAverageBalancesForClient(clientId, from, to)
@@ -58,20 +110,42 @@ public class TransactionController implements V1Api {
 
 
     @Override
-    public Mono<ResponseEntity<TransactionResponse>> getTransactionById(String id, ServerWebExchange exchange) {
-        return transactionService.getTransactionById(id)
+    public Mono<ResponseEntity<ProductSummaryResponse>> getProductSummary(String productId, ServerWebExchange exchange) {
+        return transactionService.getProductSummary(productId)
+                .map(productSummary -> ResponseEntity.ok().body(productSummary));
+    }
+
+    @Override
+    public Mono<ResponseEntity<TransactionResponse>> getTransactionById(String id, String fields, ServerWebExchange exchange) {
+        return transactionService.getTransactionById(id, fields)
                 .map(transactionResponse
                         -> ResponseEntity.ok().body(transactionResponse));
     }
 
     @Override
-    public Mono<ResponseEntity<Flux<TransactionResponse>>> getTransactionsByProductId(String productId, ServerWebExchange exchange) {
-        return Mono.fromSupplier(() -> ResponseEntity.ok().body(transactionService.getTransactionsByAccountId(productId)));
+    public Mono<ResponseEntity<Flux<TransactionResponse>>> getTransactionsByProductId(String productId, String fields, ServerWebExchange exchange) {
+        return Mono.fromSupplier(() -> ResponseEntity.ok().body(transactionService.getTransactionsByAccountId(productId, fields)));
+    }
+
+    @Override
+    public Mono<ResponseEntity<TransactionResponse>> updateTransaction(String id, Mono<TransactionRequest> transactionRequest, String idempotencyKey,
+                                                                       ServerWebExchange exchange) {
+        return transactionService.updateTransaction(id, transactionRequest, idempotencyKey)
+                .map(transactionResponse -> ResponseEntity.ok().body(transactionResponse));
     }
 
     @Override
-    public Mono<ResponseEntity<TransactionResponse>> updateTransaction(String id, Mono<TransactionRequest> transactionRequest, ServerWebExchange exchange) {
-        return transactionService.updateTransaction(id, transactionRequest)
+    public Mono<ResponseEntity<TransactionResponse>> patchTransaction(String id, Mono<TransactionPatchRequest> transactionPatchRequest, ServerWebExchange exchange) {
+        return transactionService.patchTransaction(id, transactionPatchRequest)
                 .map(transactionResponse -> ResponseEntity.ok().body(transactionResponse));
     }
+
+    /**
+     * Checks whether the client asked for a streaming media type, in which case the results are written
+     * as they come from the Mongo cursor instead of being collected first.
+     */
+    private boolean isStreaming(ServerWebExchange exchange) {
+        return exchange.getRequest().getHeaders().getAccept().stream()
+                .anyMatch(accepted -> STREAMING_MEDIA_TYPES.stream().anyMatch(accepted::equalsTypeAndSubtype));
+    }
 }
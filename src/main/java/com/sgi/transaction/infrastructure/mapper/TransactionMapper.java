@@ -1,10 +1,23 @@
 package com.sgi.transaction.infrastructure.mapper;
 
+import com.sgi.transaction.domain.model.CommissionTotals;
+import com.sgi.transaction.domain.model.ProductSummary;
 import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.domain.model.TransactionFields;
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.dto.CommissionBucket;
+import com.sgi.transaction.infrastructure.dto.ErrorResponse;
+import com.sgi.transaction.infrastructure.dto.ProductSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
+import com.sgi.transaction.infrastructure.dto.TransactionPatchRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import org.mapstruct.BeanMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.Named;
+import org.mapstruct.NullValuePropertyMappingStrategy;
 import org.mapstruct.factory.Mappers;
 import reactor.core.publisher.Mono;
 
@@ -24,6 +37,27 @@ public interface TransactionMapper {
     @Mapping(target = "balance", source = "balance", defaultValue = "0.0")
     TransactionResponse toTransactionResponse(Transaction transaction);
 
+    /**
+     * Maps a transaction read with a projection. Fields left out of the projection stay null
+     * instead of taking the defaults of a full response, so they are not serialized.
+     *
+     * @param transaction The transaction as read from Mongo.
+     * @param fields The fields that were projected.
+     * @return The response.
+     */
+    default TransactionResponse toTransactionResponse(Transaction transaction, TransactionFields fields) {
+        return fields.isAll() ? toTransactionResponse(transaction) : toProjectedResponse(transaction);
+    }
+
+    @Named("projected")
+    @Mapping(target = "source", ignore = true)
+    TransactionResponse toProjectedResponse(Transaction transaction);
+
+    CommissionBucket toCommissionBucket(CommissionTotals commissionTotals);
+
+    @Mapping(target = "transactionCount", source = "count")
+    ProductSummaryResponse toProductSummaryResponse(ProductSummary productSummary);
+
     @Mapping(target = "id", ignore = true)
     Transaction toTransaction(TransactionRequest customer);
 
@@ -32,6 +66,34 @@ public interface TransactionMapper {
     @Mapping(target = "updatedDate", expression = "java(java.time.Instant.now())")
     Transaction created(TransactionRequest transaction);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "bootcoinId", ignore = true)
+    @Mapping(target = "buyRate", ignore = true)
+    @Mapping(target = "sellRate", ignore = true)
+    @Mapping(target = "sender", ignore = true)
+    @Mapping(target = "receiver", ignore = true)
+    @Mapping(target = "createdDate", ignore = true)
+    @Mapping(target = "updatedDate", ignore = true)
+    Transaction fromPatch(TransactionPatchRequest patchRequest);
+
+    Transaction copy(Transaction transaction);
+
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    void applyChanges(Transaction changes, @MappingTarget Transaction transaction);
+
+    /**
+     * Builds the state of a transaction after a partial update, leaving the previous state untouched.
+     *
+     * @param previous The transaction before the update.
+     * @param changes The fields that were set.
+     * @return The updated transaction.
+     */
+    default Transaction patched(Transaction previous, Transaction changes) {
+        Transaction patched = copy(previous);
+        applyChanges(changes, patched);
+        return patched;
+    }
+
     default Mono<Transaction> map(Mono<TransactionRequest> transactionRequestMono) {
         return transactionRequestMono.map(this::created);
     }
@@ -39,4 +101,23 @@ public interface TransactionMapper {
     default OffsetDateTime map(Instant instant) {
         return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
     }
+
+    default TransactionBatchResult toCreatedResult(int index, Transaction transaction) {
+        return new TransactionBatchResult(index, TransactionBatchResult.StatusEnum.CREATED)
+                .transaction(toTransactionResponse(transaction));
+    }
+
+    /**
+     * Builds the result of a batch item that could not be written.
+     *
+     * @param index Position of the item in the batch.
+     * @param customError The error reported for the item.
+     * @return The failed batch result.
+     */
+    default TransactionBatchResult toFailedResult(int index, CustomError customError) {
+        ErrorResponse error = new ErrorResponse(customError.getError().getStatus().value(), customError.getError().getCode(),
+                customError.getError().getMessage(), OffsetDateTime.now(ZoneOffset.UTC));
+        return new TransactionBatchResult(index, TransactionBatchResult.StatusEnum.FAILED)
+                .error(error);
+    }
 }
@@ -0,0 +1,48 @@
+package com.sgi.transaction.infrastructure.pool;
+
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+
+/**
+ * Reports the Mongo pools as degraded while their wait queue stays saturated for longer than the saturation period.
+ * A short burst of waiting operations is expected under load and keeps the pools up.
+ */
+public class ConnectionPoolHealthIndicator implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "The wait queue of the Mongo connection pools is saturated");
+
+    private final ConnectionPoolMonitor monitor;
+
+    private final TransactionProperties.Pool properties;
+
+    /**
+     * Creates the health indicator.
+     *
+     * @param monitor Monitor of the pools.
+     * @param properties The pool options.
+     */
+    public ConnectionPoolHealthIndicator(ConnectionPoolMonitor monitor, TransactionProperties.Pool properties) {
+        this.monitor = monitor;
+        this.properties = properties;
+    }
+
+    /**
+     * Reports the pools with their connections checked out and their wait queue.
+     */
+    @Override
+    public Health health() {
+        Duration saturatedFor = monitor.saturatedFor(System.nanoTime());
+        Health.Builder health = saturatedFor.isZero() || saturatedFor.compareTo(properties.getSaturationPeriod()) < 0
+                ? Health.up()
+                : Health.status(DEGRADED);
+        return health.withDetail("checkedOut", monitor.getCheckedOut())
+                .withDetail("waitQueue", monitor.getWaitQueue())
+                .withDetail("maxSize", properties.getMaxSize())
+                .withDetail("saturatedFor", saturatedFor.toString())
+                .build();
+    }
+}
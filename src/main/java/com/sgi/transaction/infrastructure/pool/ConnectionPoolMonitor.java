@@ -0,0 +1,113 @@
+package com.sgi.transaction.infrastructure.pool;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Follows the connections of the Mongo pools of every server.
+ * Publishes the connections checked out, the operations waiting for one and the time they waited,
+ * and tracks since when the wait queue has been at or over the saturation threshold.
+ */
+public class ConnectionPoolMonitor implements ConnectionPoolListener {
+
+    public static final String METER = "transaction.mongo.pool";
+
+    private static final long NOT_SATURATED = Long.MIN_VALUE;
+
+    private final TransactionProperties.Pool properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger checkedOut = new AtomicInteger();
+
+    private final AtomicInteger waitQueue = new AtomicInteger();
+
+    private final AtomicLong saturatedSince = new AtomicLong(NOT_SATURATED);
+
+    /**
+     * Creates the monitor and registers the gauges of the pools.
+     *
+     * @param properties The pool options.
+     * @param meterRegistry Registry where the pool metrics are published.
+     */
+    public ConnectionPoolMonitor(TransactionProperties.Pool properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(METER + ".checked.out", checkedOut, AtomicInteger::get)
+                .description("Connections checked out of the pools")
+                .register(meterRegistry);
+        Gauge.builder(METER + ".wait.queue", waitQueue, AtomicInteger::get)
+                .description("Operations waiting for a connection")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        onWaitQueue(waitQueue.incrementAndGet());
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        checkedOut.incrementAndGet();
+        onWaitQueue(waitQueue.decrementAndGet());
+        recordWait("success", event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        onWaitQueue(waitQueue.decrementAndGet());
+        recordWait(event.getReason().name().toLowerCase(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOut.decrementAndGet();
+    }
+
+    public int getCheckedOut() {
+        return checkedOut.get();
+    }
+
+    public int getWaitQueue() {
+        return waitQueue.get();
+    }
+
+    /**
+     * Time the wait queue has stayed at or over the saturation threshold.
+     *
+     * @param now Current {@link System#nanoTime()}.
+     * @return The time saturated, zero when the queue is under the threshold.
+     */
+    public Duration saturatedFor(long now) {
+        long since = saturatedSince.get();
+        return since == NOT_SATURATED ? Duration.ZERO : Duration.ofNanos(now - since);
+    }
+
+    private void onWaitQueue(int depth) {
+        if (depth >= properties.getSaturationThreshold()) {
+            saturatedSince.compareAndSet(NOT_SATURATED, System.nanoTime());
+        } else {
+            saturatedSince.set(NOT_SATURATED);
+        }
+    }
+
+    private void recordWait(String outcome, long nanos) {
+        Timer.builder(METER + ".wait")
+                .description("Time an operation waited for a connection")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,150 @@
+package com.sgi.transaction.infrastructure.repository.impl;
+
+import com.sgi.transaction.domain.model.DailyBalance;
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.domain.ports.out.DailyBalanceRepository;
+import com.sgi.transaction.infrastructure.admission.Deadline;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Implementation of {@link DailyBalanceRepository} that keeps the "daily_balance" rollup
+ * with atomic upserts through {@link ReactiveMongoTemplate}.
+ */
+@Repository
+public class DailyBalanceRepositoryImpl implements DailyBalanceRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final TransactionProperties properties;
+
+    private final ReadRouter readRouter;
+
+    /**
+     * Creates the repository and the router of its report reads.
+     */
+    public DailyBalanceRepositoryImpl(ReactiveMongoTemplate mongoTemplate, TransactionProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+        this.readRouter = new ReadRouter(properties.getReadRouting());
+    }
+
+    @Override
+    public Mono<Void> add(Transaction transaction) {
+        if (!isTracked(transaction)) {
+            return Mono.empty();
+        }
+        BigDecimal balance = balanceOf(transaction);
+        return mongoTemplate.upsert(keyOf(transaction), increment(balance, 1L, balance, balance), DailyBalance.class).then();
+    }
+
+    /**
+     * Folds the transactions per client, product and day first, so a batch sends one upsert per rollup document.
+     */
+    @Override
+    public Mono<Void> addAll(List<Transaction> transactions) {
+        Map<Query, DailyBalance> totals = totalsOf(transactions);
+        if (totals.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyBalance.class);
+        totals.forEach((key, total) ->
+                bulkOperations.upsert(key, increment(total.getSum(), total.getCount(), total.getMin(), total.getMax())));
+        return bulkOperations.execute().then();
+    }
+
+    @Override
+    public Mono<Void> subtract(Transaction transaction) {
+        if (!isTracked(transaction)) {
+            return Mono.empty();
+        }
+        Update update = new Update()
+                .inc("sum", new Decimal128(balanceOf(transaction).negate()))
+                .inc("count", -1L);
+        return mongoTemplate.updateFirst(keyOf(transaction), update, DailyBalance.class).then();
+    }
+
+    /**
+     * Takes removed transactions out of the rollup, folded per client, product and day as in {@link #addAll(List)}.
+     * As with {@link #subtract(Transaction)}, min and max are left as they were.
+     */
+    @Override
+    public Mono<Void> subtractAll(List<Transaction> transactions) {
+        Map<Query, DailyBalance> totals = totalsOf(transactions);
+        if (totals.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyBalance.class);
+        totals.forEach((key, total) -> bulkOperations.updateOne(key, new Update()
+                .inc("sum", new Decimal128(total.getSum().negate()))
+                .inc("count", -total.getCount())));
+        return bulkOperations.execute().then();
+    }
+
+    @Override
+    public Flux<DailyBalance> findByClientIdAndDayBetween(String clientId, LocalDate startDate, LocalDate endDate) {
+        Query query = readRouter.route("daily-average-balances", Query.query(Criteria.where("clientId").is(clientId)
+                .and("day").gte(startDate.toString()).lte(endDate.toString())));
+        return Deadline.flux(deadline -> mongoTemplate.find(deadline.isBounded() ? query.maxTime(deadline.remaining()) : query,
+                DailyBalance.class));
+    }
+
+    private Map<Query, DailyBalance> totalsOf(List<Transaction> transactions) {
+        Map<Query, DailyBalance> totals = new LinkedHashMap<>();
+        transactions.stream()
+                .filter(this::isTracked)
+                .forEach(transaction -> {
+                    BigDecimal balance = balanceOf(transaction);
+                    totals.merge(keyOf(transaction),
+                            DailyBalance.builder().sum(balance).count(1L).min(balance).max(balance).build(),
+                            (current, next) -> DailyBalance.builder()
+                                    .sum(current.getSum().add(next.getSum()))
+                                    .count(current.getCount() + next.getCount())
+                                    .min(current.getMin().min(next.getMin()))
+                                    .max(current.getMax().max(next.getMax()))
+                                    .build());
+                });
+        return totals;
+    }
+
+    private boolean isTracked(Transaction transaction) {
+        return transaction.getClientId() != null
+                && transaction.getProductId() != null
+                && transaction.getCreatedDate() != null;
+    }
+
+    private BigDecimal balanceOf(Transaction transaction) {
+        return Objects.requireNonNullElse(transaction.getBalance(), BigDecimal.ZERO);
+    }
+
+    private Update increment(BigDecimal sum, long count, BigDecimal min, BigDecimal max) {
+        return new Update()
+                .inc("sum", new Decimal128(sum))
+                .inc("count", count)
+                .min("min", new Decimal128(min))
+                .max("max", new Decimal128(max));
+    }
+
+    private Query keyOf(Transaction transaction) {
+        LocalDate day = LocalDate.ofInstant(transaction.getCreatedDate(), properties.getReports().getTimeZone());
+        return Query.query(Criteria.where("clientId").is(transaction.getClientId())
+                .and("productId").is(transaction.getProductId())
+                .and("day").is(day.toString()));
+    }
+}
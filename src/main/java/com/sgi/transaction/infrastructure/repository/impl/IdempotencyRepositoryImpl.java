@@ -0,0 +1,62 @@
+package com.sgi.transaction.infrastructure.repository.impl;
+
+import com.sgi.transaction.domain.model.IdempotencyRecord;
+import com.sgi.transaction.domain.ports.out.IdempotencyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Implementation of {@link IdempotencyRepository} over the "idempotency_key" collection.
+ * The unique id makes a claim atomic across instances.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyRepositoryImpl implements IdempotencyRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * Upserts the claim over an expired record the TTL monitor has not removed yet. When an unexpired
+     * record holds the id the filter does not match and the insert fails on the duplicate id.
+     */
+    @Override
+    public Mono<Boolean> claim(IdempotencyRecord pending) {
+        Query expired = Query.query(Criteria.where("_id").is(pending.getId()).and("expiresAt").lte(Instant.now()));
+        Update update = new Update()
+                .set("fingerprint", pending.getFingerprint())
+                .unset("response")
+                .set("expiresAt", pending.getExpiresAt());
+        return mongoTemplate.upsert(expired, update, IdempotencyRecord.class)
+                .thenReturn(true)
+                .onErrorResume(DuplicateKeyException.class, ex -> Mono.just(false));
+    }
+
+    @Override
+    public Mono<Void> complete(IdempotencyRecord completed) {
+        Update update = new Update()
+                .set("response", completed.getResponse())
+                .set("expiresAt", completed.getExpiresAt());
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(completed.getId())), update, IdempotencyRecord.class)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> release(String id) {
+        Query pending = Query.query(Criteria.where("_id").is(id).and("response").exists(false));
+        return mongoTemplate.remove(pending, IdempotencyRecord.class).then();
+    }
+
+    @Override
+    public Mono<IdempotencyRecord> findById(String id) {
+        return mongoTemplate.findById(id, IdempotencyRecord.class)
+                .filter(record -> record.getExpiresAt() == null || record.getExpiresAt().isAfter(Instant.now()));
+    }
+}
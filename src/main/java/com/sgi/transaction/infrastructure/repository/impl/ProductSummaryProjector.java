@@ -0,0 +1,314 @@
+package com.sgi.transaction.infrastructure.repository.impl;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import com.sgi.transaction.domain.model.ChangeStreamCheckpoint;
+import com.sgi.transaction.domain.model.ProductSummary;
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Maintains the "product_summary" collection from the change stream of the transactions.
+ * Each insert adds the transaction to the totals of its product, each delete reverts it, and each update or
+ * replace reverts the previous state and adds the new one, read from the pre-image of the change.
+ * The resume token of the last applied change is saved at most once per checkpoint interval, so a restart
+ * replays at most that interval; a replayed change is rejected by the lastEvent guard of the summary.
+ * On the first start, with no checkpoint yet, the summaries are rebuilt from the stored transactions and
+ * the stream resumes at the time the rebuild started. Changes racing with that rebuild may be counted twice.
+ * When the oplog no longer holds the checkpoint (ChangeStreamHistoryLost), the checkpoint is cleared and the
+ * summaries are rebuilt the same way. Other failures reopen the stream a bounded number of times; past that the
+ * projection stops and reports DOWN on the health endpoint.
+ * Requires a replica set, and MongoDB 6.0 for the pre-images and post-images of updates and deletes.
+ */
+@Slf4j
+@Component
+public class ProductSummaryProjector implements SmartLifecycle, HealthIndicator {
+
+    static final String CHECKPOINT_ID = "product-summary";
+
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private static final List<String> OPERATIONS = List.of(OperationType.INSERT.getValue(), OperationType.UPDATE.getValue(),
+            OperationType.REPLACE.getValue(), OperationType.DELETE.getValue());
+
+    private static final Decimal128 ZERO = new Decimal128(BigDecimal.ZERO);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final TransactionProperties.Summary properties;
+
+    private final TransactionPartitions partitions;
+
+    private final String summaryCollection;
+
+    private volatile Disposable subscription;
+
+    private volatile Throwable failure;
+
+    /**
+     * Creates the projector. It only starts when transaction.summary.enabled is set.
+     */
+    public ProductSummaryProjector(ReactiveMongoTemplate mongoTemplate, TransactionProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties.getSummary();
+        this.partitions = new TransactionPartitions(mongoTemplate, properties);
+        this.summaryCollection = mongoTemplate.getCollectionName(ProductSummary.class);
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Tails the change stream in the background, reopening it with a backoff when it fails, up to the
+     * maximum number of retries in a row. A lost history that the rebuild did not recover from is not retried.
+     */
+    @Override
+    public void start() {
+        failure = null;
+        subscription = project()
+                .retryWhen(Retry.backoff(properties.getMaxRetries(), Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofMinutes(1))
+                        .transientErrors(true)
+                        .filter(ex -> !isHistoryLost(ex))
+                        .doBeforeRetry(signal -> log.warn("Product summary change stream failed, reopening it",
+                                signal.failure()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .subscribe(checkpoint -> { }, ex -> {
+                    failure = ex;
+                    log.error("Product summary change stream stopped, the summaries are no longer updated", ex);
+                });
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+        subscription = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null && !subscription.isDisposed();
+    }
+
+    /**
+     * Reports the projection DOWN with its last failure once it has stopped retrying.
+     */
+    @Override
+    public Health health() {
+        if (!properties.isEnabled()) {
+            return Health.unknown().withDetail("enabled", false).build();
+        }
+        Throwable current = failure;
+        return current != null
+                ? Health.down(current).build()
+                : Health.up().withDetail("running", isRunning()).build();
+    }
+
+    /**
+     * Enables the pre-images, resumes the stream after the checkpoint or rebuilds the summaries first,
+     * then applies every change in order and saves the checkpoint.
+     *
+     * @return Completes when the change stream is closed.
+     */
+    public Mono<Void> run() {
+        return project().then();
+    }
+
+    /**
+     * Tails the change stream, rebuilding the summaries once when the history after the checkpoint was lost.
+     */
+    private Flux<ChangeStreamCheckpoint> project() {
+        return tail()
+                .onErrorResume(ProductSummaryProjector::isHistoryLost, ex -> {
+                    log.warn("Product summary change stream history lost, rebuilding the summaries", ex);
+                    return mongoTemplate.remove(Query.query(Criteria.where("_id").is(CHECKPOINT_ID)), ChangeStreamCheckpoint.class)
+                            .thenMany(tail());
+                });
+    }
+
+    private Flux<ChangeStreamCheckpoint> tail() {
+        return partitions.all()
+                .concatMap(collection -> partitions.enablePreImages(collection)
+                        .onErrorResume(ex -> {
+                            log.warn("Could not record pre-images of {}, updates and deletes will not revert totals", collection, ex);
+                            return Mono.empty();
+                        }))
+                .then(mongoTemplate.findById(CHECKPOINT_ID, ChangeStreamCheckpoint.class))
+                .map(checkpoint -> options().resumeAfter(BsonDocument.parse(checkpoint.getResumeToken())))
+                .switchIfEmpty(Mono.defer(this::backfill).map(start -> options().resumeAt(start)))
+                .flatMapMany(options -> mongoTemplate.changeStream(null, partitions.changeStreamCollection(), options.build(),
+                        Transaction.class))
+                .concatMap(event -> apply(event).thenReturn(event.getResumeToken()))
+                .sample(properties.getCheckpointInterval())
+                .concatMap(this::checkpoint);
+    }
+
+    /**
+     * Applies one change to the summaries of the products it touches. Both states come from the images
+     * recorded with the change, so an update is applied as it was even when the document changed again since.
+     *
+     * @param event The change.
+     * @return Completes once the summaries are updated.
+     */
+    public Mono<Void> apply(ChangeStreamEvent<Transaction> event) {
+        long clusterTime = event.getBsonTimestamp().getValue();
+        OperationType operation = event.getOperationType();
+        Transaction before = operation == OperationType.INSERT ? null : event.getBodyBeforeChange();
+        Transaction after = operation == OperationType.DELETE ? null : event.getBody();
+        boolean incomplete = operation != OperationType.INSERT && before == null
+                || operation != OperationType.DELETE && after == null;
+        if (incomplete) {
+            log.warn("No pre-image or post-image for the {} of a transaction, the totals of its product are not changed",
+                    operation.getValue());
+            return after == null ? Mono.empty() : upsert(after.getProductId(), 0L, BigDecimal.ZERO, after, clusterTime);
+        }
+        if (before != null && after != null && Objects.equals(before.getProductId(), after.getProductId())) {
+            return upsert(after.getProductId(), 0L, commissionOf(after).subtract(commissionOf(before)), after, clusterTime);
+        }
+        Mono<Void> revert = before == null ? Mono.empty()
+                : upsert(before.getProductId(), -1L, commissionOf(before).negate(), null, clusterTime);
+        Mono<Void> add = after == null ? Mono.empty()
+                : upsert(after.getProductId(), 1L, commissionOf(after), after, clusterTime);
+        return revert.then(add);
+    }
+
+    /**
+     * Adds the deltas to the summary of a product, unless a change at or after this cluster time was already applied.
+     * The balance and the last activity only move forward in createdDate. A rejected change fails the upsert
+     * with a duplicate key, which is ignored.
+     */
+    private Mono<Void> upsert(String productId, long count, BigDecimal commission, Transaction latest, long clusterTime) {
+        if (productId == null) {
+            return Mono.empty();
+        }
+        Query query = Query.query(Criteria.where("_id").is(productId)
+                .orOperator(Criteria.where("lastEvent").lt(clusterTime), Criteria.where("lastEvent").exists(false)));
+        Document set = new Document("count", new Document("$add", List.of(ifNull("$count", 0L), count)))
+                .append("commission", new Document("$add", List.of(ifNull("$commission", ZERO), new Decimal128(commission))))
+                .append("lastEvent", clusterTime);
+        if (latest != null && latest.getCreatedDate() != null) {
+            Date createdDate = Date.from(latest.getCreatedDate());
+            Document newer = new Document("$lte", List.of(ifNull("$lastActivity", new Date(0)), createdDate));
+            if (latest.getBalance() != null) {
+                set.append("balance", cond(newer, new Decimal128(latest.getBalance()), "$balance"));
+            }
+            set.append("lastActivity", cond(newer, createdDate, "$lastActivity"));
+        }
+        AggregationOperation stage = context -> new Document("$set", set);
+        return mongoTemplate.upsert(query, AggregationUpdate.from(List.of(stage)), ProductSummary.class)
+                .onErrorResume(DuplicateKeyException.class, ex -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Replaces every summary with the totals of the transactions created before now, in one aggregation
+     * over all the partitions merged into the summary collection.
+     *
+     * @return The cluster time the change stream resumes at.
+     */
+    private Mono<BsonTimestamp> backfill() {
+        Instant now = Instant.now();
+        BsonTimestamp start = new BsonTimestamp((int) now.getEpochSecond(), 0);
+        Criteria criteria = Criteria.where("productId").ne(null).and("createdDate").lt(now);
+        return partitions.all()
+                .collectList()
+                .filter(names -> !names.isEmpty())
+                .flatMap(names -> {
+                    List<AggregationOperation> stages = new ArrayList<>();
+                    stages.add(Aggregation.match(criteria));
+                    names.subList(1, names.size())
+                            .forEach(collection -> stages.add(UnionWithOperation.unionWith(collection).pipeline(Aggregation.match(criteria))));
+                    stages.add(Aggregation.sort(Sort.Direction.DESC, "createdDate"));
+                    stages.add(Aggregation.group("productId")
+                            .first("balance").as("balance")
+                            .sum("commission").as("commission")
+                            .count().as("count")
+                            .first("createdDate").as("lastActivity"));
+                    stages.add(Aggregation.addFields().addFieldWithValue("lastEvent", start.getValue()).build());
+                    stages.add(MergeOperation.builder()
+                            .intoCollection(summaryCollection)
+                            .whenMatched(MergeOperation.WhenDocumentsMatch.replaceDocument())
+                            .whenDocumentsDontMatch(MergeOperation.WhenDocumentsDontMatch.insertNewDocument())
+                            .build());
+                    return mongoTemplate.aggregate(Aggregation.newAggregation(stages), names.get(0), Document.class).then();
+                })
+                .thenReturn(start);
+    }
+
+    private Mono<ChangeStreamCheckpoint> checkpoint(BsonValue resumeToken) {
+        return mongoTemplate.save(new ChangeStreamCheckpoint(CHECKPOINT_ID, resumeToken.asDocument().toJson(), Instant.now()));
+    }
+
+    private ChangeStreamOptions.ChangeStreamOptionsBuilder options() {
+        Criteria criteria = Criteria.where("operationType").in(OPERATIONS);
+        if (partitions.changeStreamCollection() == null) {
+            criteria = criteria.and("ns.coll").regex(partitions.collectionPattern());
+        }
+        return ChangeStreamOptions.builder()
+                .filter(Aggregation.newAggregation(Aggregation.match(criteria)))
+                .fullDocumentLookup(FullDocument.WHEN_AVAILABLE)
+                .fullDocumentBeforeChangeLookup(FullDocumentBeforeChange.WHEN_AVAILABLE);
+    }
+
+    private static boolean isHistoryLost(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException && mongoException.getCode() == CHANGE_STREAM_HISTORY_LOST) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static BigDecimal commissionOf(Transaction transaction) {
+        return transaction.getCommission() != null ? transaction.getCommission() : BigDecimal.ZERO;
+    }
+
+    private static Document ifNull(String field, Object fallback) {
+        return new Document("$ifNull", List.of(field, fallback));
+    }
+
+    private static Document cond(Document condition, Object then, Object otherwise) {
+        return new Document("$cond", List.of(condition, then, otherwise));
+    }
+}
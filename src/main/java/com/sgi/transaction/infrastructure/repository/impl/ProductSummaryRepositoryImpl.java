@@ -0,0 +1,24 @@
+package com.sgi.transaction.infrastructure.repository.impl;
+
+import com.sgi.transaction.domain.model.ProductSummary;
+import com.sgi.transaction.domain.ports.out.ProductSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Implementation of {@link ProductSummaryRepository} that reads the "product_summary" collection
+ * maintained by {@link ProductSummaryProjector}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductSummaryRepositoryImpl implements ProductSummaryRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<ProductSummary> findByProductId(String productId) {
+        return mongoTemplate.findById(productId, ProductSummary.class);
+    }
+}
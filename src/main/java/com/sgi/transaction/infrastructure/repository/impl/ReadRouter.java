@@ -0,0 +1,68 @@
+package com.sgi.transaction.infrastructure.repository.impl;
+
+import com.mongodb.ReadPreference;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes the read-only report operations to secondaries, so they do not compete with writes on the primary.
+ * A routed read uses secondaryPreferred with the configured maxStalenessSeconds, so it falls back to the primary
+ * when no secondary is fresh enough. Every other read, including the lookups by id that follow a write,
+ * stays on the primary.
+ */
+public class ReadRouter {
+
+    private final TransactionProperties.ReadRouting properties;
+
+    private final ReadPreference secondary;
+
+    /**
+     * Creates the router.
+     *
+     * @param properties The routing options.
+     */
+    public ReadRouter(TransactionProperties.ReadRouting properties) {
+        this.properties = properties;
+        this.secondary = ReadPreference.secondaryPreferred(properties.getMaxStaleness().toSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Resolves the read preference of an operation.
+     *
+     * @param operation Name of the operation, as listed in the routing options.
+     * @return The read preference, or empty to read from the primary.
+     */
+    public Optional<ReadPreference> readPreference(String operation) {
+        return properties.isEnabled() && properties.getOperations().contains(operation)
+                ? Optional.of(secondary)
+                : Optional.empty();
+    }
+
+    /**
+     * Sets the read preference of the operation on a query.
+     *
+     * @param operation Name of the operation.
+     * @param query The query.
+     * @return The same query.
+     */
+    public Query route(String operation, Query query) {
+        readPreference(operation).ifPresent(query::withReadPreference);
+        return query;
+    }
+
+    /**
+     * Sets the read preference of the operation on aggregation options.
+     *
+     * @param operation Name of the operation.
+     * @param options The aggregation options.
+     * @return The same options.
+     */
+    public AggregationOptions.Builder route(String operation, AggregationOptions.Builder options) {
+        readPreference(operation).ifPresent(options::readPreference);
+        return options;
+    }
+}
@@ -0,0 +1,89 @@
+package com.sgi.transaction.infrastructure.repository.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of transactions by id, placed in front of the id lookups.
+ * Concurrent misses for the same id share a single load. Entries expire after the configured
+ * time to live, so updates made by other instances are seen within that window.
+ * When the cache is disabled every lookup goes straight to the loader.
+ */
+public class TransactionCache {
+
+    private static final String CACHE_NAME = "transactions";
+
+    private final AsyncCache<String, Transaction> cache;
+
+    /**
+     * Creates the cache and registers its hit, miss and eviction metrics.
+     *
+     * @param properties The cache options.
+     * @param meterRegistry Registry where the cache metrics are published.
+     */
+    public TransactionCache(TransactionProperties.Cache properties, MeterRegistry meterRegistry) {
+        this.cache = properties.isEnabled()
+                ? CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                        .maximumSize(properties.getMaximumSize())
+                        .expireAfterWrite(properties.getTimeToLive())
+                        .recordStats()
+                        .buildAsync(), CACHE_NAME)
+                : null;
+    }
+
+    /**
+     * Returns the cached transaction, loading it when it is not cached yet.
+     * The load runs with the Reactor context of the caller, so it keeps the deadline of the request.
+     *
+     * @param id The transaction id.
+     * @param loader Loads the transaction on a miss. An empty result is not cached.
+     * @return The transaction, or empty if it does not exist.
+     */
+    public Mono<Transaction> get(String id, Function<String, Mono<Transaction>> loader) {
+        if (cache == null) {
+            return loader.apply(id);
+        }
+        return Mono.deferContextual(context -> Mono.fromFuture(() -> cache.get(id, (key, executor) -> loader.apply(key)
+                .contextWrite(context)
+                .toFuture()), true));
+    }
+
+    /**
+     * Caches a transaction that was just written.
+     *
+     * @param transaction The written transaction.
+     */
+    public void put(Transaction transaction) {
+        if (cache != null && transaction.getId() != null) {
+            cache.put(transaction.getId(), CompletableFuture.completedFuture(transaction));
+        }
+    }
+
+    /**
+     * Removes a transaction from the cache.
+     *
+     * @param id The transaction id.
+     */
+    public void invalidate(String id) {
+        if (cache != null) {
+            cache.synchronous().invalidate(id);
+        }
+    }
+
+    /**
+     * Removes every transaction from the cache, for writes whose ids are not known.
+     */
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.synchronous().invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.sgi.transaction.infrastructure.repository.impl;
+
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the collections transactions are stored in.
+ * Without partitioning every transaction lives in the collection of the {@link Transaction} entity.
+ * With partitioning each UTC month of createdDate has its own collection, named {@code transaction_yyyyMM},
+ * so a date range only reads the months it overlaps and an old month is removed by dropping its collection.
+ * Ids are ObjectIds whose timestamp is the createdDate, which gives the partition of an id without a lookup.
+ * The list of partitions is kept for a refresh interval, and listed again right after this instance creates one.
+ * Only the partitions are read once enabled: documents left in the unpartitioned collection are no longer found.
+ */
+public class TransactionPartitions {
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final boolean enabled;
+
+    private final boolean preImages;
+
+    private final String collection;
+
+    private final Pattern partitionName;
+
+    private final Duration namesRefreshInterval;
+
+    private final Map<String, Mono<Void>> indexes = new ConcurrentHashMap<>();
+
+    private volatile Mono<List<String>> partitionNames;
+
+    /**
+     * Creates the resolver for the configured storage mode.
+     *
+     * @param mongoTemplate Template used to list partitions and create their indexes.
+     * @param properties The partitioning options, and the summary options that need change stream pre-images.
+     */
+    public TransactionPartitions(ReactiveMongoTemplate mongoTemplate, TransactionProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = properties.getPartitioning().isEnabled();
+        this.preImages = properties.getSummary().isEnabled();
+        this.collection = Transaction.class.getAnnotation(Document.class).collection();
+        this.partitionName = Pattern.compile(Pattern.quote(collection + "_") + "\\d{6}");
+        this.namesRefreshInterval = properties.getPartitioning().getNamesRefreshInterval();
+        this.partitionNames = listPartitions();
+    }
+
+    /**
+     * Generates the id of a new transaction. When partitioning, the id carries the createdDate
+     * truncated to the second, which never moves it to another month.
+     *
+     * @param transaction The new transaction.
+     * @return The id.
+     */
+    public String newId(Transaction transaction) {
+        if (!enabled) {
+            return new ObjectId().toHexString();
+        }
+        Instant createdDate = transaction.getCreatedDate() != null ? transaction.getCreatedDate() : Instant.now();
+        return new ObjectId(Date.from(createdDate)).toHexString();
+    }
+
+    /**
+     * Finds the collection holding the transaction with this id.
+     *
+     * @param id Identifier of the transaction.
+     * @return The collection, or empty if the id is not an ObjectId and cannot name a partition.
+     */
+    public Optional<String> forId(String id) {
+        if (!enabled) {
+            return Optional.of(collection);
+        }
+        return ObjectId.isValid(id)
+                ? Optional.of(name(YearMonth.from(new ObjectId(id).getDate().toInstant().atOffset(ZoneOffset.UTC))))
+                : Optional.empty();
+    }
+
+    /**
+     * Resolves the collection a transaction is written to.
+     *
+     * @param transaction The transaction, with its id already assigned.
+     * @return The collection.
+     */
+    public String forTransaction(Transaction transaction) {
+        return forId(transaction.getId())
+                .orElseGet(() -> name(YearMonth.from(Optional.ofNullable(transaction.getCreatedDate())
+                        .orElseGet(Instant::now)
+                        .atOffset(ZoneOffset.UTC))));
+    }
+
+    /**
+     * Lists the collections holding transactions created in a period, newest first.
+     *
+     * @param from First instant of the period, or null for no lower bound.
+     * @param to Instant right after the period, or null for no upper bound.
+     * @return The collections overlapping the period.
+     */
+    public Flux<String> between(Instant from, Instant to) {
+        if (!enabled) {
+            return Flux.just(collection);
+        }
+        return partitionNames
+                .flatMapIterable(names -> names)
+                .filter(name -> overlaps(month(name), from, to));
+    }
+
+    public Flux<String> all() {
+        return between(null, null);
+    }
+
+    /**
+     * Collection a change stream over the transactions is opened on, or null to open it on the database
+     * and filter the partitions by name.
+     *
+     * @return The collection, or null when partitioning.
+     */
+    public String changeStreamCollection() {
+        return enabled ? null : collection;
+    }
+
+    public Pattern collectionPattern() {
+        return Pattern.compile("^" + Pattern.quote(collection) + "(_\\d{6})?$");
+    }
+
+    /**
+     * Records the state of a document before each change in the change stream of a collection,
+     * creating the collection when it does not exist yet. Needs MongoDB 6.0.
+     *
+     * @param target The collection.
+     * @return Completes once pre-images are recorded.
+     */
+    public Mono<Void> enablePreImages(String target) {
+        org.bson.Document collMod = new org.bson.Document("collMod", target)
+                .append("changeStreamPreAndPostImages", new org.bson.Document("enabled", true));
+        return mongoTemplate.collectionExists(target)
+                .flatMap(exists -> exists
+                        ? mongoTemplate.executeCommand(collMod).then()
+                        : mongoTemplate.createCollection(target, CollectionOptions.empty()
+                                .changeStream(CollectionOptions.CollectionChangeStreamOptions.preAndPostImages(true))).then());
+    }
+
+    /**
+     * Creates the indexes declared on {@link Transaction} in a partition before its first write,
+     * once per partition and process, and enables its pre-images when the summary is maintained.
+     * The partitions are listed again afterwards, so reads see a new partition at once.
+     * The collection of the entity itself is indexed by Spring Data on startup.
+     *
+     * @param target The collection about to be written.
+     * @return Completes once the indexes exist.
+     */
+    public Mono<Void> ensureIndexes(String target) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return indexes.computeIfAbsent(target, name -> Flux.defer(() -> Flux.fromIterable(indexDefinitions()))
+                .concatMap(definition -> mongoTemplate.indexOps(name).ensureIndex(definition))
+                .then(preImages ? enablePreImages(name) : Mono.empty())
+                .doOnSuccess(done -> partitionNames = listPartitions())
+                .doOnError(ex -> indexes.remove(name))
+                .cache());
+    }
+
+    private Mono<List<String>> listPartitions() {
+        return Flux.defer(mongoTemplate::getCollectionNames)
+                .filter(name -> partitionName.matcher(name).matches())
+                .collectSortedList(Comparator.reverseOrder())
+                .cache(names -> namesRefreshInterval, ex -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    private Iterable<? extends IndexDefinition> indexDefinitions() {
+        return IndexResolver.create(mongoTemplate.getConverter().getMappingContext()).resolveIndexFor(Transaction.class);
+    }
+
+    private String name(YearMonth month) {
+        return collection + "_" + month.format(MONTH);
+    }
+
+    private YearMonth month(String name) {
+        return YearMonth.parse(name.substring(collection.length() + 1), MONTH);
+    }
+
+    private boolean overlaps(YearMonth month, Instant from, Instant to) {
+        Instant start = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant end = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        return (from == null || end.isAfter(from)) && (to == null || start.isBefore(to));
+    }
+}
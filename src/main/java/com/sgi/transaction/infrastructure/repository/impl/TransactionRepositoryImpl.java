@@ -1,57 +1,297 @@
 package com.sgi.transaction.infrastructure.repository.impl;
 
+import com.sgi.transaction.domain.model.CommissionTotals;
+import com.sgi.transaction.domain.model.DailyBalance;
 import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.domain.model.TransactionCursor;
+import com.sgi.transaction.domain.model.TransactionFields;
+import com.sgi.transaction.domain.model.TransactionFilter;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.sgi.transaction.domain.ports.out.TransactionRepository;
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.admission.Deadline;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.dto.Granularity;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
 import com.sgi.transaction.infrastructure.dto.TransactionResponse;
 import com.sgi.transaction.infrastructure.mapper.TransactionMapper;
-import com.sgi.transaction.infrastructure.repository.TransactionRepositoryJpa;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.DayOfWeek;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
- * Implementation of {@link TransactionRepository} that uses {@link TransactionRepositoryJpa}
- * for database interactions. Provides reactive methods to manage transactions.
+ * Implementation of {@link TransactionRepository} over {@link ReactiveMongoTemplate}.
+ * Provides reactive methods to manage transactions, in the collections resolved by {@link TransactionPartitions}.
  */
 @Repository
-@RequiredArgsConstructor
 public class TransactionRepositoryImpl implements TransactionRepository {
 
-    private final TransactionRepositoryJpa repositoryJpa;
-
     private final ReactiveMongoTemplate mongoTemplate;
 
+    private final TransactionProperties properties;
+
+    private final TransactionWriteBuffer writeBuffer;
+
+    private final TransactionCache cache;
+
+    private final TransactionPartitions partitions;
+
+    private final ReadRouter readRouter;
+
+    /**
+     * Creates the repository, the id cache, the partition resolver, the read router and, when coalescing is enabled,
+     * the write buffer used by {@link #save(Transaction)}.
+     */
+    public TransactionRepositoryImpl(ReactiveMongoTemplate mongoTemplate, TransactionProperties properties, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+        TransactionProperties.Ingest ingest = properties.getIngest();
+        this.writeBuffer = ingest.isCoalescing()
+                ? new TransactionWriteBuffer(this::insertAll, ingest.getMaxBatchSize(), ingest.getMaxLatency(),
+                        ingest.getMaxConcurrentFlushes(), meterRegistry)
+                : null;
+        this.cache = new TransactionCache(properties.getCache(), meterRegistry);
+        this.partitions = new TransactionPartitions(mongoTemplate, properties);
+        this.readRouter = new ReadRouter(properties.getReadRouting());
+    }
+
+    /**
+     * Closes the write buffer on shutdown. Inserts already buffered are still flushed.
+     */
+    @PreDestroy
+    public void close() {
+        if (writeBuffer != null) {
+            writeBuffer.close();
+        }
+    }
+
+    /**
+     * Saves the transaction. New transactions go through the write buffer when coalescing is enabled,
+     * updates are always written directly.
+     */
     @Override
     public Mono<TransactionResponse> save(Transaction transaction) {
-        return repositoryJpa.save(transaction)
+        if (writeBuffer != null && transaction.getId() == null) {
+            return writeBuffer.submit(transaction)
+                    .doOnNext(response -> cache.put(transaction));
+        }
+        if (transaction.getId() == null) {
+            transaction.setId(partitions.newId(transaction));
+        }
+        String collection = partitions.forTransaction(transaction);
+        return partitions.ensureIndexes(collection)
+                .then(Mono.defer(() -> mongoTemplate.save(transaction, collection)))
+                .doOnNext(cache::put)
                 .map(TransactionMapper.INSTANCE::toTransactionResponse);
     }
 
+    /**
+     * Inserts the transactions with a single unordered bulk write per collection, so one failing document
+     * does not stop the others. Ids are assigned before the write to report each created transaction.
+     */
+    @Override
+    public Flux<TransactionBatchResult> insertAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return Flux.empty();
+        }
+        transactions.stream()
+                .filter(transaction -> transaction.getId() == null)
+                .forEach(transaction -> transaction.setId(partitions.newId(transaction)));
+        Map<String, List<Integer>> indexesByCollection = IntStream.range(0, transactions.size()).boxed()
+                .collect(Collectors.groupingBy(index -> partitions.forTransaction(transactions.get(index)), LinkedHashMap::new, Collectors.toList()));
+        return Flux.fromIterable(indexesByCollection.entrySet())
+                .concatMap(entry -> insertInto(entry.getKey(), entry.getValue(), transactions))
+                .collect(Collectors.toSet())
+                .flatMapMany(failed -> Flux.range(0, transactions.size())
+                        .map(index -> failed.contains(index)
+                                ? TransactionMapper.INSTANCE.toFailedResult(index, CustomError.E_TRANSACTION_NOT_CREATED)
+                                : TransactionMapper.INSTANCE.toCreatedResult(index, transactions.get(index))));
+    }
+
+    /**
+     * Inserts the transactions at the given positions into one collection.
+     *
+     * @return The positions, in the whole batch, of the transactions that failed.
+     */
+    private Flux<Integer> insertInto(String collection, List<Integer> indexes, List<Transaction> transactions) {
+        List<Transaction> documents = indexes.stream().map(transactions::get).toList();
+        return partitions.ensureIndexes(collection)
+                .then(Mono.defer(() -> mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Transaction.class, collection)
+                        .insert(documents)
+                        .execute()
+                        .map(result -> Set.<Integer>of())))
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(failedIndexes(ex.getWriteErrors())))
+                .onErrorResume(BulkOperationException.class, ex -> Mono.just(failedIndexes(ex.getErrors())))
+                .flatMapIterable(failed -> failed.stream().map(indexes::get).toList());
+    }
+
+    private Set<Integer> failedIndexes(List<BulkWriteError> errors) {
+        return errors.stream()
+                .map(BulkWriteError::getIndex)
+                .collect(Collectors.toSet());
+    }
+
     @Override
     public Mono<Transaction> findById(String id) {
-        return repositoryJpa.findById(id);
+        return cache.get(id, this::load);
     }
 
     @Override
-    public Flux<TransactionResponse> findAll(String productId, String cardId, Integer page, Integer size) {
-        Pageable pageable = PageRequest.of(Math.max(0, page - 1), size, Sort.by("createdDate").descending());
-        Query query = buildQuery(productId, cardId, pageable);
-        return mongoTemplate.find(query, Transaction.class)
-                .map(TransactionMapper.INSTANCE::toTransactionResponse);
+    public Mono<Transaction> findById(String id, TransactionFields fields) {
+        if (fields.isAll()) {
+            return findById(id);
+        }
+        return partitions.forId(id)
+                .map(collection -> Deadline.mono(deadline -> mongoTemplate.findOne(bounded(project(byId(id), fields), deadline),
+                        Transaction.class, collection)))
+                .orElseGet(Mono::empty);
+    }
+
+    /**
+     * Reads the transaction by id, as a query with a maxTimeMS when the request has a deadline.
+     */
+    private Mono<Transaction> load(String id) {
+        return partitions.forId(id)
+                .map(collection -> Deadline.mono(deadline -> deadline.isBounded()
+                        ? mongoTemplate.findOne(bounded(byId(id), deadline), Transaction.class, collection)
+                        : mongoTemplate.findById(id, Transaction.class, collection)))
+                .orElseGet(Mono::empty);
+    }
+
+    private Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(String id) {
+        return partitions.forId(id)
+                .map(collection -> Deadline.mono(deadline -> mongoTemplate.exists(bounded(byId(id), deadline), Transaction.class, collection)))
+                .orElseGet(() -> Mono.just(false));
+    }
+
+    /**
+     * Runs a single findAndModify with a {@code $set} of the converted non-null fields of {@code changes}.
+     * The expected updatedDate is truncated to milliseconds, the precision Mongo stores dates with.
+     */
+    @Override
+    public Mono<Transaction> patch(String id, Transaction changes, Instant expectedUpdatedDate) {
+        Document fields = new Document();
+        mongoTemplate.getConverter().write(changes, fields);
+        Update update = new Update();
+        fields.forEach((field, value) -> {
+            if (!"_id".equals(field) && !"_class".equals(field)) {
+                update.set(field, value);
+            }
+        });
+        Criteria criteria = Criteria.where("_id").is(id);
+        if (expectedUpdatedDate != null) {
+            criteria.and("updatedDate").is(expectedUpdatedDate.truncatedTo(ChronoUnit.MILLIS));
+        }
+        return partitions.forId(id)
+                .map(collection -> mongoTemplate.findAndModify(new Query(criteria), update, FindAndModifyOptions.options().returnNew(false),
+                        Transaction.class, collection))
+                .orElseGet(Mono::empty)
+                .doOnTerminate(() -> cache.invalidate(id))
+                .doOnCancel(() -> cache.invalidate(id));
+    }
+
+    /**
+     * Pages with skip and limit in Mongo when there is a single collection. Across partitions, each one is read
+     * newest first up to the end of the page and the skip is applied to the concatenated results,
+     * stopping at the first partition that completes the page.
+     */
+    @Override
+    public Flux<TransactionResponse> findAll(String productId, String cardId, Integer page, Integer size, TransactionFields fields) {
+        Pageable pageable = PageRequest.of(Math.max(0, page - 1), size, Sort.by(Sort.Direction.DESC, "createdDate", "id"));
+        Query query = readRouter.route("all-transactions", Query.query(buildCriteria(productId, cardId))
+                .cursorBatchSize(properties.getStreaming().getCursorBatchSize()));
+        return partitions.all()
+                .collectList()
+                .flatMapMany(collections -> collections.size() == 1
+                        ? find(query.with(pageable), fields, Flux.fromIterable(collections))
+                        : find(query.with(pageable.getSort()).limit((int) pageable.getOffset() + size), fields, Flux.fromIterable(collections))
+                                .skip(pageable.getOffset())
+                                .take(size));
+    }
+
+    @Override
+    public Flux<TransactionResponse> findAll(String productId, String cardId, TransactionCursor cursor, Integer size, TransactionFields fields) {
+        Criteria criteria = buildCriteria(productId, cardId);
+        if (cursor != null) {
+            criteria.andOperator(new Criteria().orOperator(
+                    Criteria.where("createdDate").lt(cursor.getCreatedDate()),
+                    Criteria.where("createdDate").is(cursor.getCreatedDate()).and("id").lt(cursor.getId())));
+        }
+        Query query = readRouter.route("all-transactions", Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdDate", "id"))
+                .limit(size)
+                .cursorBatchSize(properties.getStreaming().getCursorBatchSize()));
+        Flux<String> collections = cursor != null ? partitions.between(null, cursor.getCreatedDate().plusMillis(1)) : partitions.all();
+        return find(query, fields, collections)
+                .take(size);
+    }
+
+    /**
+     * Runs the query on each collection in turn, reading only the requested fields,
+     * mapped without the defaults of a full response. Each collection is given the time left before the deadline.
+     */
+    private Flux<TransactionResponse> find(Query query, TransactionFields fields, Flux<String> collections) {
+        Query projected = project(query, fields);
+        return Deadline.flux(deadline -> collections
+                .concatMap(collection -> mongoTemplate.find(bounded(projected, deadline), Transaction.class, collection))
+                .map(transaction -> TransactionMapper.INSTANCE.toTransactionResponse(transaction, fields)));
     }
 
-    private Query buildQuery(String productId, String cardId, Pageable pageable) {
+    /**
+     * Gives the query the time left before the deadline as its maxTimeMS.
+     */
+    private Query bounded(Query query, Deadline deadline) {
+        return deadline.isBounded() ? query.maxTime(deadline.remaining()) : query;
+    }
+
+    private Query project(Query query, TransactionFields fields) {
+        if (!fields.isAll()) {
+            query.fields().include(fields.getNames().toArray(new String[0]));
+        }
+        return query;
+    }
+
+    private Criteria buildCriteria(String productId, String cardId) {
         Criteria criteria = new Criteria();
         if (productId != null || cardId != null) {
             List<Criteria> criteriaList = new ArrayList<>();
@@ -63,29 +303,196 @@ public class TransactionRepositoryImpl implements TransactionRepository {
             }
             criteria.orOperator(criteriaList.toArray(new Criteria[0]));
         }
-        return Query.query(criteria).with(pageable);
+        return criteria;
+    }
+
+    private Criteria buildCriteria(TransactionFilter filter) {
+        Criteria criteria = new Criteria();
+        if (filter.getProductId() != null) {
+            criteria.and("productId").is(filter.getProductId());
+        }
+        if (filter.getCardId() != null) {
+            criteria.and("cardId").is(filter.getCardId());
+        }
+        if (filter.getStatus() != null) {
+            criteria.and("status").is(filter.getStatus());
+        }
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            Criteria createdDate = criteria.and("createdDate");
+            if (filter.getFrom() != null) {
+                createdDate.gte(startOf(filter.getFrom()));
+            }
+            if (filter.getTo() != null) {
+                createdDate.lt(endOf(filter.getTo()));
+            }
+        }
+        return criteria;
     }
 
+    private Instant startOf(LocalDate day) {
+        return day == null ? null : day.atStartOfDay(properties.getReports().getTimeZone()).toInstant();
+    }
+
+    private Instant endOf(LocalDate day) {
+        return day == null ? null : startOf(day.plusDays(1));
+    }
+
+    /**
+     * Uses findOneAndDelete rather than deleteOne, so the removed document comes back
+     * in the same round trip for the daily balance rollup.
+     */
     @Override
-    public Mono<Void> delete(Transaction credit) {
-        return repositoryJpa.delete(credit);
+    public Mono<Transaction> deleteById(String id) {
+        return partitions.forId(id)
+                .map(collection -> mongoTemplate.findAndRemove(byId(id), Transaction.class, collection))
+                .orElseGet(Mono::empty)
+                .doOnTerminate(() -> cache.invalidate(id))
+                .doOnCancel(() -> cache.invalidate(id));
     }
 
+    /**
+     * Finds up to deleteChunkSize matching documents, with only the fields the rollup needs, and removes them by id,
+     * until a chunk comes back short. Each chunk is emitted once removed, so the rollup is decreased by the very
+     * documents that were deleted, not by totals read before the delete.
+     */
     @Override
-    public Flux<TransactionResponse> getTransactionsByAccountId(String accountId) {
-        return repositoryJpa.findAllByProductId(accountId)
-                .map(TransactionMapper.INSTANCE::toTransactionResponse);
+    public Flux<List<Transaction>> deleteAll(TransactionFilter filter) {
+        Criteria criteria = buildCriteria(filter);
+        int chunkSize = properties.getBatch().getDeleteChunkSize();
+        return partitions.between(startOf(filter.getFrom()), endOf(filter.getTo()))
+                .concatMap(collection -> Mono.defer(() -> deleteChunk(criteria, chunkSize, collection))
+                        .repeat()
+                        .takeUntil(chunk -> chunk.size() < chunkSize)
+                        .filter(chunk -> !chunk.isEmpty()))
+                .doOnTerminate(cache::invalidateAll)
+                .doOnCancel(cache::invalidateAll);
+    }
+
+    private Mono<List<Transaction>> deleteChunk(Criteria criteria, int chunkSize, String collection) {
+        Query query = Query.query(criteria).limit(chunkSize);
+        query.fields().include("clientId", "productId", "balance", "createdDate");
+        return mongoTemplate.find(query, Transaction.class, collection)
+                .collectList()
+                .flatMap(chunk -> chunk.isEmpty()
+                        ? Mono.just(chunk)
+                        : mongoTemplate.remove(Query.query(Criteria.where("_id").in(chunk.stream().map(Transaction::getId).toList())),
+                                Transaction.class, collection).thenReturn(chunk));
     }
 
     @Override
-    public Flux<TransactionResponse> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate) {
-        return repositoryJpa.findCommissionsByProductAndDateRange(productId, startDate, endDate)
-                .map(TransactionMapper.INSTANCE::toTransactionResponse);
+    public Flux<TransactionResponse> getTransactionsByAccountId(String accountId, TransactionFields fields) {
+        Query query = Query.query(Criteria.where("productId").is(accountId))
+                .cursorBatchSize(properties.getStreaming().getCursorBatchSize());
+        return find(query, fields, partitions.all());
     }
 
     @Override
-    public Flux<TransactionResponse> getDailyAverageBalancesForClient(String clientId, LocalDate startDate, LocalDate endDate) {
-        return repositoryJpa.findByClientIdAndCreatedDateBetween(clientId, startDate, endDate)
-                .map(TransactionMapper.INSTANCE::toTransactionResponse);
+    public Flux<TransactionResponse> getCommissionsByProductAndPeriod(String productId, LocalDate startDate, LocalDate endDate,
+                                                                      TransactionFields fields) {
+        Query query = readRouter.route("commissions", Query.query(commissionsBetween(productId, startDate, endDate))
+                .cursorBatchSize(properties.getStreaming().getCursorBatchSize()));
+        return find(query, fields, partitions.between(startOf(startDate), endOf(endDate)));
+    }
+
+    /**
+     * Groups the commissions matched by {@link #getCommissionsByProductAndPeriod} on the start of their day,
+     * week or month in the report time zone, so only one row per bucket leaves the database.
+     */
+    @Override
+    public Flux<CommissionTotals> aggregateCommissions(String productId, LocalDate startDate, LocalDate endDate, Granularity granularity) {
+        Criteria criteria = commissionsBetween(productId, startDate, endDate);
+        DateOperators.Timezone timezone = DateOperators.Timezone.fromZone(properties.getReports().getTimeZone());
+        DateOperators.DateTrunc truncated = DateOperators.dateOf("createdDate")
+                .truncate(granularity.getValue().toLowerCase())
+                .withTimezone(timezone);
+        DateOperators.DateTrunc bucket = granularity == Granularity.WEEK ? truncated.startOfWeek(DayOfWeek.MONDAY) : truncated;
+        return aggregateAcross("commission-summary", partitions.between(startOf(startDate), endOf(endDate)), unionCollections -> {
+            List<AggregationOperation> stages = matchAcross(criteria, unionCollections);
+            stages.addAll(List.of(
+                    Aggregation.project("commission").and(bucket).as("period"),
+                    Aggregation.group("period")
+                            .sum("commission").as("sum")
+                            .count().as("count")
+                            .min("commission").as("min")
+                            .max("commission").as("max"),
+                    Aggregation.project("sum", "count", "min", "max")
+                            .and(DateOperators.dateOf("_id").withTimezone(timezone).toString("%Y-%m-%d")).as("period")
+                            .andExclude("_id"),
+                    Aggregation.sort(Sort.by("period"))));
+            return Aggregation.newAggregation(Transaction.class, stages);
+        }, CommissionTotals.class);
+    }
+
+    private Criteria commissionsBetween(String productId, LocalDate startDate, LocalDate endDate) {
+        Criteria criteria = Criteria.where("productId").is(productId)
+                .and("commission").ne(null).gt(0);
+        return createdBetween(criteria, startDate, endDate);
+    }
+
+    @Override
+    public Flux<DailyBalance> aggregateDailyBalancesForClient(String clientId, LocalDate startDate, LocalDate endDate) {
+        return aggregateDailyBalances("daily-average-balances", createdBetween(Criteria.where("clientId").is(clientId), startDate, endDate),
+                partitions.between(startOf(startDate), endOf(endDate)));
+    }
+
+    private Flux<DailyBalance> aggregateDailyBalances(String operation, Criteria criteria, Flux<String> collections) {
+        return aggregateAcross(operation, collections, unionCollections -> dailyBalanceAggregation(criteria, unionCollections),
+                DailyBalance.class);
+    }
+
+    /**
+     * Runs the aggregation on the first collection and adds the matching documents of the others with
+     * {@code $unionWith}, so a report day spread over two monthly partitions is still grouped once.
+     * The aggregation reads where the operation is routed and is given the time left before the deadline as its maxTimeMS.
+     */
+    private <O> Flux<O> aggregateAcross(String operation, Flux<String> collections,
+                                        Function<List<String>, TypedAggregation<Transaction>> aggregation, Class<O> outputType) {
+        return Deadline.flux(deadline -> collections.collectList()
+                .filter(names -> !names.isEmpty())
+                .flatMapMany(names -> mongoTemplate.aggregate(aggregation.apply(names.subList(1, names.size()))
+                        .withOptions(options(operation, deadline)), names.get(0), outputType)));
+    }
+
+    private AggregationOptions options(String operation, Deadline deadline) {
+        AggregationOptions.Builder options = readRouter.route(operation, AggregationOptions.builder());
+        if (deadline.isBounded()) {
+            options.maxTime(deadline.remaining());
+        }
+        return options.build();
+    }
+
+    private List<AggregationOperation> matchAcross(Criteria criteria, List<String> unionCollections) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(criteria));
+        unionCollections.forEach(collection -> stages.add(UnionWithOperation.unionWith(collection).pipeline(Aggregation.match(criteria))));
+        return stages;
+    }
+
+    private TypedAggregation<Transaction> dailyBalanceAggregation(Criteria criteria, List<String> unionCollections) {
+        ZoneId zone = properties.getReports().getTimeZone();
+        DateOperators.Timezone timezone = DateOperators.Timezone.fromZone(zone);
+        List<AggregationOperation> stages = matchAcross(criteria, unionCollections);
+        stages.addAll(List.of(
+                Aggregation.project("clientId", "productId")
+                        .and(DateOperators.dateOf("createdDate").withTimezone(timezone).truncate("day")).as("day")
+                        .and(ConditionalOperators.ifNull("balance").then(0)).as("balance"),
+                Aggregation.group("clientId", "productId", "day")
+                        .sum("balance").as("sum")
+                        .count().as("count")
+                        .min("balance").as("min")
+                        .max("balance").as("max"),
+                Aggregation.project("sum", "count", "min", "max")
+                        .and("_id.clientId").as("clientId")
+                        .and("_id.productId").as("productId")
+                        .and(DateOperators.dateOf("_id.day").withTimezone(timezone).toString("%Y-%m-%d")).as("day")
+                        .andExclude("_id"),
+                Aggregation.sort(Sort.by("productId", "day"))));
+        return Aggregation.newAggregation(Transaction.class, stages);
+    }
+
+    private Criteria createdBetween(Criteria criteria, LocalDate startDate, LocalDate endDate) {
+        return criteria.and("createdDate")
+                .gte(startOf(startDate))
+                .lt(endOf(endDate));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package com.sgi.transaction.infrastructure.repository.impl;
+
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
+import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Collects concurrent inserts into a shared buffer and writes them with a single bulk insert
+ * once the buffer reaches its maximum size or its latency budget expires.
+ * Each caller still receives its own {@link TransactionResponse} or error.
+ * Inserts are submitted from any event loop through the serialized sink of {@link Flux#create}, which queues
+ * concurrent emissions instead of failing them, so no caller ever retries or spins.
+ * A failed flush only fails the inserts of its batch, and the buffer is restarted should its pipeline ever stop.
+ */
+@Slf4j
+public class TransactionWriteBuffer {
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private volatile FluxSink<PendingWrite> sink;
+
+    private final Function<List<Transaction>, Flux<TransactionBatchResult>> flusher;
+
+    private final int maxBatchSize;
+
+    private final Duration maxLatency;
+
+    private final int maxConcurrentFlushes;
+
+    private final Counter sizeFlushes;
+
+    private final Counter latencyFlushes;
+
+    private final DistributionSummary batchSizes;
+
+    /**
+     * Creates the buffer and starts draining it.
+     *
+     * @param flusher Writes a batch of transactions and reports the result of each one, by index.
+     * @param maxBatchSize Number of pending inserts that triggers a flush.
+     * @param maxLatency Longest time an insert waits in the buffer.
+     * @param maxConcurrentFlushes Number of bulk inserts allowed in flight.
+     * @param meterRegistry Registry where the buffer metrics are published.
+     */
+    public TransactionWriteBuffer(Function<List<Transaction>, Flux<TransactionBatchResult>> flusher, int maxBatchSize,
+                                  Duration maxLatency, int maxConcurrentFlushes, MeterRegistry meterRegistry) {
+        this.flusher = flusher;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatency = maxLatency;
+        this.maxConcurrentFlushes = maxConcurrentFlushes;
+        Gauge.builder("transaction.write.buffer.pending", pending, AtomicInteger::get)
+                .description("Inserts waiting in the write buffer")
+                .register(meterRegistry);
+        this.sizeFlushes = flushCounter("size", meterRegistry);
+        this.latencyFlushes = flushCounter("latency", meterRegistry);
+        this.batchSizes = DistributionSummary.builder("transaction.write.buffer.batch.size")
+                .description("Number of inserts written per flush")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        start();
+    }
+
+    private void start() {
+        Flux.<PendingWrite>create(emitter -> sink = emitter, FluxSink.OverflowStrategy.BUFFER)
+                .bufferTimeout(maxBatchSize, maxLatency, true)
+                .flatMap(this::flush, maxConcurrentFlushes)
+                .subscribe(null, error -> {
+                    log.error("Write buffer stopped, restarting it", error);
+                    if (!closed.get()) {
+                        start();
+                    }
+                });
+    }
+
+    /**
+     * Queues the transaction for the next flush.
+     *
+     * @param transaction The transaction to insert.
+     * @return The inserted transaction, once its batch has been written.
+     */
+    public Mono<TransactionResponse> submit(Transaction transaction) {
+        return Mono.defer(() -> {
+            if (closed.get()) {
+                return Mono.error(new CustomException(CustomError.E_TRANSACTION_NOT_CREATED));
+            }
+            Sinks.One<TransactionResponse> result = Sinks.one();
+            pending.incrementAndGet();
+            sink.next(new PendingWrite(transaction, result));
+            return result.asMono();
+        });
+    }
+
+    /**
+     * Stops accepting inserts. Inserts already buffered are still flushed.
+     */
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            sink.complete();
+        }
+    }
+
+    private Mono<Void> flush(List<PendingWrite> batch) {
+        pending.addAndGet(-batch.size());
+        batchSizes.record(batch.size());
+        (batch.size() >= maxBatchSize ? sizeFlushes : latencyFlushes).increment();
+        List<Transaction> transactions = batch.stream().map(PendingWrite::getTransaction).toList();
+        return Flux.defer(() -> flusher.apply(transactions))
+                .doOnNext(result -> complete(batch.get(result.getIndex()), result))
+                .onErrorResume(error -> {
+                    batch.forEach(write -> write.getResult().tryEmitError(error));
+                    return Mono.empty();
+                })
+                .doFinally(signal -> batch.forEach(write ->
+                        write.getResult().tryEmitError(new CustomException(CustomError.E_TRANSACTION_NOT_CREATED))))
+                .then();
+    }
+
+    private void complete(PendingWrite write, TransactionBatchResult result) {
+        if (result.getStatus() == TransactionBatchResult.StatusEnum.CREATED) {
+            write.getResult().tryEmitValue(result.getTransaction());
+        } else {
+            write.getResult().tryEmitError(new CustomException(CustomError.E_TRANSACTION_NOT_CREATED));
+        }
+    }
+
+    private static Counter flushCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("transaction.write.buffer.flushes")
+                .description("Flushes of the write buffer by trigger")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class PendingWrite {
+        private final Transaction transaction;
+        private final Sinks.One<TransactionResponse> result;
+    }
+}
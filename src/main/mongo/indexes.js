@@ -0,0 +1,41 @@
+// Index migration of the transaction service, for mongosh:
+//   mongosh "$MONGODB_URI" src/main/mongo/indexes.js
+// Spring Data does not create indexes on startup, so run this once per environment before deploying a version
+// that declares new indexes on its entities. It creates the declared indexes first, so no query loses its index,
+// then drops the ones they replaced. Every step is idempotent.
+// The monthly partitions (transaction_yyyyMM) are indexed by the service itself before their first write.
+
+const declared = {
+  transaction: [
+    { key: { clientId: 1, createdDate: -1 }, name: 'client_created_idx' },
+    { key: { productId: 1, createdDate: -1, _id: -1 }, name: 'product_created_idx' },
+    { key: { cardId: 1, createdDate: -1, _id: -1 }, name: 'card_created_idx' },
+    { key: { createdDate: -1, _id: -1 }, name: 'created_id_idx' },
+    { key: { status: 1, createdDate: -1 }, name: 'status_created_idx' }
+  ],
+  daily_balance: [
+    { key: { clientId: 1, productId: 1, day: 1 }, name: 'client_product_day_idx', unique: true }
+  ],
+  idempotency_key: [
+    { key: { expiresAt: 1 }, name: 'expires_at_ttl_idx', expireAfterSeconds: 0 }
+  ]
+};
+
+const replaced = {
+  transaction: ['product_card_idx', 'created_date_idx']
+};
+
+for (const [collection, indexes] of Object.entries(declared)) {
+  for (const { key, ...options } of indexes) {
+    print(`${collection}: creating ${options.name}`);
+    db.getCollection(collection).createIndex(key, options);
+  }
+}
+
+for (const [collection, names] of Object.entries(replaced)) {
+  const existing = db.getCollection(collection).getIndexes().map(index => index.name);
+  for (const name of names.filter(name => existing.includes(name))) {
+    print(`${collection}: dropping ${name}`);
+    db.getCollection(collection).dropIndex(name);
+  }
+}
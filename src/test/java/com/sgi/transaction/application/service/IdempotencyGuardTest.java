@@ -0,0 +1,155 @@
+package com.sgi.transaction.application.service;
+
+import com.sgi.transaction.domain.model.IdempotencyRecord;
+import com.sgi.transaction.domain.ports.out.IdempotencyRepository;
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.infrastructure.config.JacksonConfig;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test class for the {@link IdempotencyGuard}.
+ * Verifies that a key runs its action once, replays the stored response and rejects reuse for another request.
+ */
+public class IdempotencyGuardTest {
+
+    private final IdempotencyRepository idempotencyRepository = mock(IdempotencyRepository.class);
+
+    private final TransactionProperties properties = new TransactionProperties();
+
+    private final IdempotencyGuard guard = new IdempotencyGuard(idempotencyRepository, properties,
+            new JacksonConfig().objectMapper(), new SimpleMeterRegistry());
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    public void testConcurrentDuplicatesShareOneExecution() {
+        when(idempotencyRepository.claim(any(IdempotencyRecord.class))).thenReturn(Mono.just(true));
+        when(idempotencyRepository.complete(any(IdempotencyRecord.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(Mono.zip(
+                        guard.execute("create", "key", List.of("request"), this::slowCreate),
+                        guard.execute("create", "key", List.of("request"), this::slowCreate)))
+                .expectNextMatches(responses -> "id".equals(responses.getT1().getId()) && "id".equals(responses.getT2().getId()))
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+        verify(idempotencyRepository, times(1)).claim(any(IdempotencyRecord.class));
+        ArgumentCaptor<IdempotencyRecord> record = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRepository).complete(record.capture());
+        assertEquals("create:key", record.getValue().getId());
+    }
+
+    @Test
+    public void testCompletedKeyIsReplayedFromMemory() {
+        when(idempotencyRepository.claim(any(IdempotencyRecord.class))).thenReturn(Mono.just(true));
+        when(idempotencyRepository.complete(any(IdempotencyRecord.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(guard.execute("create", "key", List.of("request"), this::slowCreate)
+                        .then(guard.execute("create", "key", List.of("request"), this::slowCreate)))
+                .expectNextMatches(response -> "id".equals(response.getId()))
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+        verify(idempotencyRepository, times(1)).claim(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    public void testKeyReusedForAnotherRequestIsRejected() {
+        when(idempotencyRepository.claim(any(IdempotencyRecord.class))).thenReturn(Mono.just(true));
+        when(idempotencyRepository.complete(any(IdempotencyRecord.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(guard.execute("create", "key", List.of("request"), this::slowCreate)
+                        .then(guard.execute("create", "key", List.of("other request"), this::slowCreate)))
+                .expectErrorMatches(ex -> ex instanceof CustomException custom
+                        && CustomError.E_IDEMPOTENCY_KEY_REUSED.getError().getCode().equals(custom.getCode()))
+                .verify();
+    }
+
+    @Test
+    public void testKeyClaimedByAnotherInstanceIsAwaited() {
+        properties.getIdempotency().setPollInterval(Duration.ofMillis(5));
+        IdempotencyRecord pending = IdempotencyRecord.builder().id("create:key").fingerprint(guard.fingerprint(List.of("request"))).build();
+        IdempotencyRecord completed = IdempotencyRecord.builder().id("create:key").fingerprint(pending.getFingerprint())
+                .response("{\"id\":\"stored\"}").build();
+        when(idempotencyRepository.claim(any(IdempotencyRecord.class))).thenReturn(Mono.just(false));
+        when(idempotencyRepository.findById("create:key"))
+                .thenReturn(Mono.just(pending))
+                .thenReturn(Mono.just(pending))
+                .thenReturn(Mono.just(completed));
+
+        StepVerifier.create(guard.execute("create", "key", List.of("request"), this::slowCreate))
+                .expectNextMatches(response -> "stored".equals(response.getId()))
+                .verifyComplete();
+
+        assertEquals(0, executions.get());
+        verify(idempotencyRepository, times(3)).findById("create:key");
+    }
+
+    @Test
+    public void testFingerprintDoesNotDependOnTheOrderOfTheFields() {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("productId", "product");
+        request.put("balance", 10.5);
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("balance", 10.5);
+        reordered.put("productId", "product");
+
+        assertEquals(guard.fingerprint(List.of("id", request)), guard.fingerprint(List.of("id", reordered)));
+        assertNotEquals(guard.fingerprint(List.of("id", request)), guard.fingerprint(List.of("other id", request)));
+    }
+
+    @Test
+    public void testFailedExecutionReleasesTheKey() {
+        when(idempotencyRepository.claim(any(IdempotencyRecord.class))).thenReturn(Mono.just(true));
+        when(idempotencyRepository.release("create:key")).thenReturn(Mono.empty());
+
+        StepVerifier.create(guard.execute("create", "key", List.of("request"),
+                        () -> Mono.error(new IllegalStateException("write failed"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        verify(idempotencyRepository).release("create:key");
+        verify(idempotencyRepository, never()).complete(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    public void testRequestWithoutKeyIsNotDeduplicated() {
+        StepVerifier.create(guard.execute("create", null, List.of("request"), this::slowCreate)
+                        .then(guard.execute("create", null, List.of("request"), this::slowCreate)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(2, executions.get());
+        verify(idempotencyRepository, never()).claim(any(IdempotencyRecord.class));
+    }
+
+    private Mono<TransactionResponse> slowCreate() {
+        return Mono.delay(Duration.ofMillis(50))
+                .map(tick -> {
+                    executions.incrementAndGet();
+                    return new TransactionResponse().id("id");
+                });
+    }
+}
@@ -0,0 +1,107 @@
+package com.sgi.transaction.application.service;
+
+import com.sgi.transaction.domain.shared.CustomError;
+import com.sgi.transaction.helper.FactoryTest;
+import com.sgi.transaction.infrastructure.dto.TransactionRequest;
+import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test class for the {@link MeteredTransactionService}.
+ * Verifies the timers by outcome, the error counters and the streamed document counts.
+ */
+@ExtendWith(MockitoExtension.class)
+public class MeteredTransactionServiceTest {
+
+    @Mock
+    private TransactionServiceImpl delegate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private MeteredTransactionService transactionService;
+
+    @BeforeEach
+    public void setUp() {
+        transactionService = new MeteredTransactionService(delegate, meterRegistry);
+    }
+
+    @Test
+    public void testSuccessIsTimed() {
+        TransactionResponse transactionResponse = FactoryTest.toFactoryTransaction(TransactionResponse.class);
+        when(delegate.createTransaction(any(), any())).thenReturn(Mono.just(transactionResponse));
+
+        StepVerifier.create(transactionService.createTransaction(Mono.just(FactoryTest.toFactoryTransaction(TransactionRequest.class)), null))
+                .expectNext(transactionResponse)
+                .verifyComplete();
+
+        assertEquals(1, meterRegistry.get(MeteredTransactionService.TIMER)
+                .tag("operation", "createTransaction")
+                .tag("outcome", "SUCCESS")
+                .timer().count());
+    }
+
+    @Test
+    public void testClientErrorIsCountedByCode() {
+        when(delegate.deleteTransaction("id")).thenReturn(Mono.error(new CustomException(CustomError.E_TRANSACTION_NOT_FOUND)));
+
+        StepVerifier.create(transactionService.deleteTransaction("id"))
+                .expectError(CustomException.class)
+                .verify();
+
+        assertEquals(1, meterRegistry.get(MeteredTransactionService.TIMER)
+                .tag("operation", "deleteTransaction")
+                .tag("outcome", "CLIENT_ERROR")
+                .timer().count());
+        assertEquals(1.0, meterRegistry.get(MeteredTransactionService.ERRORS)
+                .tag("operation", "deleteTransaction")
+                .tag("code", "TRAN-001")
+                .counter().count());
+    }
+
+    @Test
+    public void testStreamedDocumentsAreCounted() {
+        LocalDate today = LocalDate.now();
+        when(delegate.getCommissionsByProductAndPeriod("product", today, today, null)).thenReturn(Flux.just(
+                FactoryTest.toFactoryTransaction(TransactionResponse.class),
+                FactoryTest.toFactoryTransaction(TransactionResponse.class),
+                FactoryTest.toFactoryTransaction(TransactionResponse.class)));
+
+        StepVerifier.create(transactionService.getCommissionsByProductAndPeriod("product", today, today, null))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        assertEquals(3.0, meterRegistry.get(MeteredTransactionService.DOCUMENTS)
+                .tag("operation", "getCommissionsByProductAndPeriod")
+                .summary().totalAmount());
+    }
+
+    @Test
+    public void testCancellationIsTimed() {
+        when(delegate.getTransactionsByAccountId("account", null)).thenReturn(Flux.range(0, 10)
+                .map(index -> FactoryTest.toFactoryTransaction(TransactionResponse.class)));
+
+        StepVerifier.create(transactionService.getTransactionsByAccountId("account", null).take(2))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(1, meterRegistry.get(MeteredTransactionService.TIMER)
+                .tag("operation", "getTransactionsByAccountId")
+                .tag("outcome", "CANCELLED")
+                .timer().count());
+    }
+}
@@ -0,0 +1,90 @@
+package com.sgi.transaction.application.service;
+
+import com.sgi.transaction.domain.model.DailyBalance;
+import com.sgi.transaction.infrastructure.dto.Product;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test class for the {@link MoneyAggregator}.
+ * Verifies exact totals in minor units, the ordering of the report and overflow detection.
+ */
+public class MoneyAggregatorTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Test
+    public void testAveragesAreExactToTheCent() {
+        MoneyAggregator aggregator = new MoneyAggregator();
+        for (int row = 0; row < 1_000; row++) {
+            aggregator.add(dailyBalance("product", DAY, "0.10", 1L));
+        }
+        aggregator.add(dailyBalance("product", DAY, "0.05", 1L));
+
+        List<Product> products = aggregator.toProducts();
+
+        assertEquals(1, products.size());
+        assertEquals(0.1, products.get(0).getDailyAverages().get(0).getAverageBalance());
+    }
+
+    @Test
+    public void testProductsKeepFirstSeenOrderAndDaysAreSorted() {
+        MoneyAggregator aggregator = new MoneyAggregator();
+        for (int day = 99; day >= 0; day--) {
+            aggregator.add(dailyBalance("second", DAY.plusDays(day), "1.00", 1L));
+        }
+        aggregator.add(dailyBalance("first", DAY, "3.00", 2L));
+        aggregator.add(dailyBalance("second", DAY, "2.00", 1L));
+
+        List<Product> products = aggregator.toProducts();
+
+        assertEquals("second", products.get(0).getProductId());
+        assertEquals(100, products.get(0).getDailyAverages().size());
+        assertEquals(DAY, products.get(0).getDailyAverages().get(0).getDate());
+        assertEquals(1.5, products.get(0).getDailyAverages().get(0).getAverageBalance());
+        assertEquals(DAY.plusDays(99), products.get(0).getDailyAverages().get(99).getDate());
+        assertEquals("first", products.get(1).getProductId());
+        assertEquals(1.5, products.get(1).getDailyAverages().get(0).getAverageBalance());
+    }
+
+    @Test
+    public void testRowsWithoutTransactionsAreIgnored() {
+        MoneyAggregator aggregator = new MoneyAggregator();
+        aggregator.add(dailyBalance("product", DAY, "5.00", 0L));
+
+        assertEquals(0, aggregator.toProducts().size());
+    }
+
+    @Test
+    public void testAverageRoundsHalfEven() {
+        assertEquals(2L, MoneyAggregator.average(5L, 2L));
+        assertEquals(4L, MoneyAggregator.average(7L, 2L));
+        assertEquals(-2L, MoneyAggregator.average(-5L, 2L));
+        assertEquals(3L, MoneyAggregator.average(10L, 3L));
+    }
+
+    @Test
+    public void testOverflowIsReported() {
+        MoneyAggregator aggregator = new MoneyAggregator();
+        aggregator.add("product", DAY, Long.MAX_VALUE, 1L);
+
+        assertThrows(CustomException.class, () -> aggregator.add("product", DAY, 1L, 1L));
+        assertThrows(CustomException.class, () -> MoneyAggregator.toMinorUnits(new BigDecimal("1e30")));
+    }
+
+    private DailyBalance dailyBalance(String productId, LocalDate day, String sum, long count) {
+        return DailyBalance.builder()
+                .productId(productId)
+                .day(day.toString())
+                .sum(new BigDecimal(sum))
+                .count(count)
+                .build();
+    }
+}
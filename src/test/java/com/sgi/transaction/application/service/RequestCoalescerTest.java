@@ -0,0 +1,135 @@
+package com.sgi.transaction.application.service;
+
+import com.sgi.transaction.infrastructure.admission.Deadline;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit test class for the {@link RequestCoalescer}.
+ * Verifies that identical requests in flight share one execution within the share window only,
+ * under the deadline of the operation rather than that of the first request.
+ */
+public class RequestCoalescerTest {
+
+    private final TransactionProperties properties = new TransactionProperties();
+
+    private final RequestCoalescer coalescer = new RequestCoalescer(properties);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    public void testIdenticalRequestsShareOneExecution() {
+        StepVerifier.create(Flux.merge(
+                        coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport),
+                        coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport)))
+                .expectNext("report", "report")
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void testResultIsReplayedToLateJoiners() {
+        Mono<String> first = coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport);
+        Mono<String> second = Mono.delay(Duration.ofMillis(20))
+                .then(coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport));
+
+        StepVerifier.create(Flux.merge(first, second))
+                .expectNext("report", "report")
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void testDifferentArgumentsRunSeparately() {
+        StepVerifier.create(Flux.merge(
+                        coalescer.mono("getCommissionSummary", List.of("product-1"), this::slowReport),
+                        coalescer.mono("getCommissionSummary", List.of("product-2"), this::slowReport)))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void testCompletedRequestIsNotReused() {
+        StepVerifier.create(coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport))
+                .expectNext("report")
+                .verifyComplete();
+        StepVerifier.create(coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport))
+                .expectNext("report")
+                .verifyComplete();
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void testRequestOutsideShareWindowRunsAgain() {
+        properties.getCoalescing().setMaxShareWindow(Duration.ofMillis(10));
+
+        StepVerifier.create(Flux.merge(
+                        coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport),
+                        Mono.delay(Duration.ofMillis(30))
+                                .then(coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport))))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void testOperationOutOfScopeIsNotShared() {
+        properties.getCoalescing().setOperations(Set.of("getDailyAverageBalancesForClient"));
+
+        StepVerifier.create(Flux.merge(
+                        coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport),
+                        coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport)))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void testSharedExecutionRunsUnderTheDeadlineOfItsOperation() {
+        properties.getDeadlines().setOperations(Map.of("getCommissionSummary", Duration.ofSeconds(5)));
+        Mono<Deadline> source = Mono.deferContextual(context -> Mono.just(Deadline.from(context)));
+
+        StepVerifier.create(coalescer.mono("getCommissionSummary", List.of("product"), () -> source)
+                        .contextWrite(Deadline.after(Duration.ofMillis(100))::store))
+                .expectNextMatches(deadline -> deadline.remaining().compareTo(Duration.ofSeconds(1)) > 0)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testCallerGivingUpDoesNotCancelTheSharedExecution() {
+        StepVerifier.create(Flux.merge(
+                        coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport)
+                                .contextWrite(Deadline.after(Duration.ofMillis(10))::store)
+                                .onErrorReturn("deadline exceeded"),
+                        coalescer.mono("getCommissionSummary", List.of("product"), this::slowReport)))
+                .expectNext("deadline exceeded", "report")
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+    }
+
+    private Mono<String> slowReport() {
+        return Mono.fromCallable(() -> {
+            executions.incrementAndGet();
+            return "report";
+        }).delayElement(Duration.ofMillis(50));
+    }
+}
@@ -1,28 +1,55 @@
 package com.sgi.transaction.application.service;
 
+import com.sgi.transaction.domain.model.CommissionTotals;
+import com.sgi.transaction.domain.model.DailyBalance;
+import com.sgi.transaction.domain.model.ProductSummary;
 import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.domain.model.TransactionCursor;
+import com.sgi.transaction.domain.model.TransactionFields;
+import com.sgi.transaction.domain.model.TransactionFilter;
+import com.sgi.transaction.domain.model.TransactionPage;
+import com.sgi.transaction.domain.ports.out.DailyBalanceRepository;
+import com.sgi.transaction.domain.ports.out.IdempotencyRepository;
+import com.sgi.transaction.domain.ports.out.ProductSummaryRepository;
 import com.sgi.transaction.domain.ports.out.TransactionRepository;
 import com.sgi.transaction.helper.FactoryTest;
+import com.sgi.transaction.infrastructure.config.JacksonConfig;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
 import com.sgi.transaction.infrastructure.dto.AverageReportResponse;
+import com.sgi.transaction.infrastructure.dto.Granularity;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
+import com.sgi.transaction.infrastructure.dto.TransactionPatchRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionResponse;
 import com.sgi.transaction.infrastructure.exception.CustomException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
@@ -40,6 +67,25 @@ public class TransactionServiceImplTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private DailyBalanceRepository dailyBalanceRepository;
+
+    @Mock
+    private ProductSummaryRepository productSummaryRepository;
+
+    @Spy
+    private TransactionProperties properties = new TransactionProperties();
+
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer(properties);
+
+    @Spy
+    private IdempotencyGuard idempotencyGuard = new IdempotencyGuard(mock(IdempotencyRepository.class), properties,
+            new JacksonConfig().objectMapper(), new SimpleMeterRegistry());
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private  TransactionServiceImpl transactionService;
 
@@ -49,14 +95,59 @@ public class TransactionServiceImplTest {
         TransactionRequest transactionRequest = FactoryTest.toFactoryTransaction(TransactionRequest.class);
         TransactionResponse transactionResponse = FactoryTest.toFactoryTransaction(TransactionResponse.class);
         when(transactionRepository.save(any(Transaction.class))).thenReturn(Mono.just(transactionResponse));
+        when(dailyBalanceRepository.add(any(Transaction.class))).thenReturn(Mono.empty());
 
-        Mono<TransactionResponse> result = transactionService.createTransaction(Mono.just(transactionRequest));
+        Mono<TransactionResponse> result = transactionService.createTransaction(Mono.just(transactionRequest), null);
 
         StepVerifier.create(result)
                 .expectNext(transactionResponse)
                 .verifyComplete();
 
         verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(dailyBalanceRepository, times(1)).add(any(Transaction.class));
+    }
+
+    @Test
+    void createTransaction_shouldSucceedWhenRollupUpdateFails() {
+        TransactionRequest transactionRequest = FactoryTest.toFactoryTransaction(TransactionRequest.class);
+        TransactionResponse transactionResponse = FactoryTest.toFactoryTransaction(TransactionResponse.class);
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(Mono.just(transactionResponse));
+        when(dailyBalanceRepository.add(any(Transaction.class))).thenReturn(Mono.error(new IllegalStateException("rollup down")));
+
+        StepVerifier.create(transactionService.createTransaction(Mono.just(transactionRequest), null))
+                .expectNext(transactionResponse)
+                .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.counter("transaction.rollup.failures", "operation", "create").count());
+    }
+
+    @Test
+    void createTransactions_shouldWriteInChunksAndReturnResultPerItem() {
+        properties.getBatch().setChunkSize(2);
+        TransactionRequest first = FactoryTest.toFactoryTransaction(TransactionRequest.class);
+        first.setCommission(null);
+        TransactionRequest second = FactoryTest.toFactoryTransaction(TransactionRequest.class);
+        TransactionRequest third = FactoryTest.toFactoryTransaction(TransactionRequest.class);
+        when(transactionRepository.insertAll(any())).thenAnswer(invocation -> {
+            List<Transaction> chunk = invocation.getArgument(0);
+            return Flux.range(0, chunk.size())
+                    .map(index -> index == 1
+                            ? new TransactionBatchResult(index, TransactionBatchResult.StatusEnum.FAILED)
+                            : new TransactionBatchResult(index, TransactionBatchResult.StatusEnum.CREATED));
+        });
+        when(dailyBalanceRepository.addAll(any())).thenReturn(Mono.empty());
+
+        Flux<TransactionBatchResult> result = transactionService.createTransactions(Flux.just(first, second, third));
+
+        StepVerifier.create(result)
+                .expectNextMatches(item -> item.getIndex() == 0 && item.getStatus() == TransactionBatchResult.StatusEnum.CREATED)
+                .expectNextMatches(item -> item.getIndex() == 1 && item.getStatus() == TransactionBatchResult.StatusEnum.FAILED)
+                .expectNextMatches(item -> item.getIndex() == 2 && item.getStatus() == TransactionBatchResult.StatusEnum.CREATED)
+                .verifyComplete();
+        verify(transactionRepository, times(2)).insertAll(any());
+        verify(dailyBalanceRepository, times(2)).addAll(any());
+        assertEquals(0d, first.getCommission());
+        assertEquals(TransactionRequest.StatusEnum.COMPLETED, third.getStatus());
     }
 
     @Test
@@ -64,63 +155,160 @@ public class TransactionServiceImplTest {
         String transactionId = UUID.randomUUID().toString();
         Transaction transaction = FactoryTest.toFactoryEntityTransaction();
         transaction.setId(transactionId);
-        when(transactionRepository.findById(transactionId)).thenReturn(Mono.just(transaction));
-        when(transactionRepository.delete(transaction)).thenReturn(Mono.empty());
+        when(transactionRepository.deleteById(transactionId)).thenReturn(Mono.just(transaction));
+        when(dailyBalanceRepository.subtract(transaction)).thenReturn(Mono.empty());
         Mono<Void> result = transactionService.deleteTransaction(transactionId);
         StepVerifier.create(result)
                 .verifyComplete();
-        verify(transactionRepository).findById(transactionId);
-        verify(transactionRepository).delete(transaction);
+        verify(transactionRepository).deleteById(transactionId);
+        verify(transactionRepository, never()).findById(anyString());
+        verify(dailyBalanceRepository).subtract(transaction);
     }
 
     @Test
     void deleteTransaction_shouldReturnNotFound() {
         String transactionId = UUID.randomUUID().toString();
-        when(transactionRepository.findById(transactionId)).thenReturn(Mono.empty());
+        when(transactionRepository.deleteById(transactionId)).thenReturn(Mono.empty());
         Mono<Void> result = transactionService.deleteTransaction(transactionId);
         StepVerifier.create(result)
                 .expectErrorMatches(throwable -> throwable instanceof CustomException
                         &&
                         throwable.getMessage().equals("Transaction not found"))
                 .verify();
-        verify(transactionRepository).findById(transactionId);
-        verify(transactionRepository, never()).delete(any());
+        verify(transactionRepository).deleteById(transactionId);
+        verify(dailyBalanceRepository, never()).subtract(any());
+    }
+
+    @Test
+    void deleteTransactions_shouldReturnDeletedCountAndUpdateRollup() {
+        TransactionFilter filter = TransactionFilter.builder().productId(UUID.randomUUID().toString()).build();
+        List<Transaction> firstChunk = List.of(FactoryTest.toFactoryEntityTransaction(), FactoryTest.toFactoryEntityTransaction());
+        List<Transaction> secondChunk = List.of(FactoryTest.toFactoryEntityTransaction());
+        when(transactionRepository.deleteAll(filter)).thenReturn(Flux.just(firstChunk, secondChunk));
+        when(dailyBalanceRepository.subtractAll(anyList())).thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionService.deleteTransactions(filter))
+                .expectNext(3L)
+                .verifyComplete();
+        verify(dailyBalanceRepository).subtractAll(firstChunk);
+        verify(dailyBalanceRepository).subtractAll(secondChunk);
+    }
+
+    @Test
+    void deleteTransactions_shouldRejectEmptyFilter() {
+        StepVerifier.create(transactionService.deleteTransactions(TransactionFilter.builder().build()))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        &&
+                        ((CustomException) throwable).getStatus() == 400)
+                .verify();
+        verify(transactionRepository, never()).deleteAll(any());
     }
 
     @Test
     void getAllTransactions_shouldReturnListTransactionResponse() {
         List<TransactionResponse> transactions = FactoryTest.toFactoryListTransactionResponse(UUID.randomUUID().toString());
-        when(transactionRepository.findAll(anyString(), anyString(), anyInt(), anyInt())).thenReturn(Flux.fromIterable(transactions));
-        Flux<TransactionResponse> result = transactionService.getAllTransactions(anyString(), anyString(), anyInt(), anyInt());
+        when(transactionRepository.findAll(anyString(), anyString(), anyInt(), anyInt(), eq(TransactionFields.ALL))).thenReturn(Flux.fromIterable(transactions));
+        Mono<TransactionPage> result = transactionService.getAllTransactions("productId", "cardId", 1, 10, null, null);
 
         StepVerifier.create(result)
-                .expectNextCount(1)
+                .expectNextMatches(page -> page.getContent().size() == 1 && page.getNextCursor() == null)
                 .verifyComplete();
-        verify(transactionRepository).findAll(anyString(), anyString(), anyInt(), anyInt());
+        verify(transactionRepository).findAll(anyString(), anyString(), anyInt(), anyInt(), eq(TransactionFields.ALL));
+    }
+
+    @Test
+    void getAllTransactions_shouldReturnNextCursorWhenPageIsFull() {
+        TransactionResponse transaction = FactoryTest.toFactoryListTransactionResponse(UUID.randomUUID().toString()).get(0);
+        transaction.setId(UUID.randomUUID().toString());
+        when(transactionRepository.findAll(null, null, 1, 1, TransactionFields.ALL)).thenReturn(Flux.just(transaction));
+        Mono<TransactionPage> result = transactionService.getAllTransactions(null, null, 1, 1, null, null);
+
+        StepVerifier.create(result)
+                .expectNextMatches(page -> TransactionCursor.decode(page.getNextCursor()).getId().equals(transaction.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void getAllTransactions_shouldUseCursorWhenPresent() {
+        TransactionCursor cursor = new TransactionCursor(Instant.ofEpochMilli(1000L), UUID.randomUUID().toString());
+        List<TransactionResponse> transactions = FactoryTest.toFactoryListTransactionResponse(UUID.randomUUID().toString());
+        when(transactionRepository.findAll(eq("productId"), isNull(), any(TransactionCursor.class), eq(10), eq(TransactionFields.ALL)))
+                .thenReturn(Flux.fromIterable(transactions));
+        Mono<TransactionPage> result = transactionService.getAllTransactions("productId", null, 1, 10, cursor.encode(), null);
+
+        StepVerifier.create(result)
+                .expectNextMatches(page -> page.getContent().size() == 1)
+                .verifyComplete();
+        verify(transactionRepository, never()).findAll(anyString(), any(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void getAllTransactions_shouldReturnErrorWhenCursorIsInvalid() {
+        Mono<TransactionPage> result = transactionService.getAllTransactions(null, null, 1, 10, "not-a-cursor", null);
+
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        &&
+                        ((CustomException) throwable).getStatus() == 400)
+                .verify();
     }
 
     @Test
     void getTransactionById_shouldReturnListTransactionResponse() {
         String transactionId =  UUID.randomUUID().toString();
         Transaction transaction = FactoryTest.toFactoryEntityTransaction();
-        when(transactionRepository.findById(transactionId)).thenReturn(Mono.just(transaction));
-        Mono<TransactionResponse> result = transactionService.getTransactionById(transactionId);
+        when(transactionRepository.findById(transactionId, TransactionFields.ALL)).thenReturn(Mono.just(transaction));
+        Mono<TransactionResponse> result = transactionService.getTransactionById(transactionId, null);
         StepVerifier.create(result)
                 .expectNextCount(1)
                 .verifyComplete();
-        verify(transactionRepository).findById(transactionId);
+        verify(transactionRepository).findById(transactionId, TransactionFields.ALL);
+    }
+
+    @Test
+    void getTransactionById_shouldReadProjectionWhenFieldsArePresent() {
+        String transactionId = UUID.randomUUID().toString();
+        Transaction transaction = new Transaction();
+        transaction.setId(transactionId);
+        transaction.setAmount(BigDecimal.TEN);
+        when(transactionRepository.findById(transactionId, TransactionFields.parse("summary"))).thenReturn(Mono.just(transaction));
+        Mono<TransactionResponse> result = transactionService.getTransactionById(transactionId, "summary");
+        StepVerifier.create(result)
+                .expectNextMatches(response -> transactionId.equals(response.getId()) && response.getBalance() == null)
+                .verifyComplete();
+        verify(transactionRepository, never()).findById(transactionId);
+    }
+
+    @Test
+    void getAllTransactions_shouldAlwaysReadCreatedDateWhenFieldsArePresent() {
+        when(transactionRepository.findAll(null, null, 1, 10, TransactionFields.parse("amount,createdDate"))).thenReturn(Flux.empty());
+        Mono<TransactionPage> result = transactionService.getAllTransactions(null, null, 1, 10, null, "amount");
+        StepVerifier.create(result)
+                .expectNextMatches(page -> page.getContent().isEmpty())
+                .verifyComplete();
+    }
+
+    @Test
+    void getTransactionsByAccountId_shouldReturnErrorWhenFieldsAreUnknown() {
+        Flux<TransactionResponse> result = transactionService.getTransactionsByAccountId("accountId", "amount,secret");
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        &&
+                        ((CustomException) throwable).getStatus() == 400)
+                .verify();
+        verify(transactionRepository, never()).getTransactionsByAccountId(anyString(), any());
     }
 
     @Test
     void getTransactionsByAccountId_shouldReturnListTransactionResponse() {
         String accountId =  UUID.randomUUID().toString();
         List<TransactionResponse> transaction = FactoryTest.toFactoryListTransactionResponse(accountId);
-        when(transactionRepository.getTransactionsByAccountId(accountId)).thenReturn(Flux.fromIterable(transaction));
-        Flux<TransactionResponse> result = transactionService.getTransactionsByAccountId(accountId);
+        when(transactionRepository.getTransactionsByAccountId(accountId, TransactionFields.ALL)).thenReturn(Flux.fromIterable(transaction));
+        Flux<TransactionResponse> result = transactionService.getTransactionsByAccountId(accountId, null);
         StepVerifier.create(result)
                 .expectNextCount(1)
                 .verifyComplete();
-        verify(transactionRepository).getTransactionsByAccountId(accountId);
+        verify(transactionRepository).getTransactionsByAccountId(accountId, TransactionFields.ALL);
     }
 
     @Test
@@ -129,12 +317,12 @@ public class TransactionServiceImplTest {
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
         List<TransactionResponse> transaction = FactoryTest.toFactoryListTransactionResponse(productId);
-        when(transactionRepository.getCommissionsByProductAndPeriod(productId, startDate, endDate)).thenReturn(Flux.fromIterable(transaction));
-        Flux<TransactionResponse> result = transactionService.getCommissionsByProductAndPeriod(productId, startDate, endDate);
+        when(transactionRepository.getCommissionsByProductAndPeriod(productId, startDate, endDate, TransactionFields.ALL)).thenReturn(Flux.fromIterable(transaction));
+        Flux<TransactionResponse> result = transactionService.getCommissionsByProductAndPeriod(productId, startDate, endDate, null);
         StepVerifier.create(result)
                 .expectNextCount(1)
                 .verifyComplete();
-        verify(transactionRepository).getCommissionsByProductAndPeriod(productId, startDate, endDate);
+        verify(transactionRepository).getCommissionsByProductAndPeriod(productId, startDate, endDate, TransactionFields.ALL);
     }
 
     @Test
@@ -142,16 +330,247 @@ public class TransactionServiceImplTest {
         String clientId = UUID.randomUUID().toString();
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
-        List<TransactionResponse> transaction = FactoryTest.toFactoryListTransactionResponse(clientId);
-        when(transactionRepository.getDailyAverageBalancesForClient(clientId, startDate, endDate)).thenReturn(Flux.fromIterable(transaction));
+        properties.getReports().setDailyBalanceRollup(false);
+        DailyBalance dailyBalance = DailyBalance.builder()
+                .productId(UUID.randomUUID().toString())
+                .day(endDate.toString())
+                .sum(BigDecimal.TEN)
+                .count(1L)
+                .build();
+        when(transactionRepository.aggregateDailyBalancesForClient(clientId, startDate, endDate)).thenReturn(Flux.just(dailyBalance));
+        Mono<AverageReportResponse> result = transactionService.getDailyAverageBalancesForClient(clientId, startDate, endDate);
+        StepVerifier.create(result)
+                .expectNextMatches(response ->
+                        response.getClientId().equals(clientId)
+                        &&
+                        response.getProducts().get(0).getDailyAverages().get(0).getAverageBalance() == 10)
+                .verifyComplete();
+        verify(dailyBalanceRepository, never()).findByClientIdAndDayBetween(any(), any(), any());
+    }
+
+    @Test
+    void getDailyAverageBalancesForClient_shouldReadFromRollup() {
+        properties.getReports().setDailyBalanceRollup(true);
+        String clientId = UUID.randomUUID().toString();
+        LocalDate startDate = LocalDate.now().minusDays(1);
+        LocalDate endDate = LocalDate.now();
+        DailyBalance dailyBalance = DailyBalance.builder()
+                .clientId(clientId)
+                .productId(UUID.randomUUID().toString())
+                .day(endDate.toString())
+                .sum(BigDecimal.valueOf(30))
+                .count(4L)
+                .build();
+        DailyBalance emptyDay = DailyBalance.builder()
+                .clientId(clientId)
+                .productId(dailyBalance.getProductId())
+                .day(startDate.toString())
+                .sum(BigDecimal.ZERO)
+                .count(0L)
+                .build();
+        when(dailyBalanceRepository.findByClientIdAndDayBetween(clientId, startDate, endDate)).thenReturn(Flux.just(dailyBalance, emptyDay));
         Mono<AverageReportResponse> result = transactionService.getDailyAverageBalancesForClient(clientId, startDate, endDate);
         StepVerifier.create(result)
                 .expectNextMatches(response ->
-                        response.getClientId().equals(clientId))
+                        response.getProducts().size() == 1
+                        &&
+                        response.getProducts().get(0).getDailyAverages().size() == 1
+                        &&
+                        response.getProducts().get(0).getDailyAverages().get(0).getAverageBalance() == 7.5)
                 .verifyComplete();
+        verify(transactionRepository, never()).aggregateDailyBalancesForClient(any(), any(), any());
     }
 
+    @Test
+    void updateTransaction_shouldMoveBalanceInRollup() {
+        String transactionId = UUID.randomUUID().toString();
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        transaction.setId(transactionId);
+        TransactionRequest transactionRequest = FactoryTest.toFactoryTransaction(TransactionRequest.class);
+        TransactionResponse transactionResponse = FactoryTest.toFactoryTransaction(TransactionResponse.class);
+        when(transactionRepository.findById(transactionId)).thenReturn(Mono.just(transaction));
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(Mono.just(transactionResponse));
+        when(dailyBalanceRepository.subtract(transaction)).thenReturn(Mono.empty());
+        when(dailyBalanceRepository.add(any(Transaction.class))).thenReturn(Mono.empty());
 
+        Mono<TransactionResponse> result = transactionService.updateTransaction(transactionId, Mono.just(transactionRequest), null);
 
+        StepVerifier.create(result)
+                .expectNext(transactionResponse)
+                .verifyComplete();
+        verify(dailyBalanceRepository).subtract(transaction);
+        verify(dailyBalanceRepository).add(any(Transaction.class));
+    }
 
+    @Test
+    void updateTransaction_shouldKeepTransactionInItsDailyBalance() {
+        String transactionId = UUID.randomUUID().toString();
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        transaction.setId(transactionId);
+        TransactionRequest transactionRequest = FactoryTest.toFactoryTransaction(TransactionRequest.class);
+        transactionRequest.setClientId(null);
+        transactionRequest.setProductId(null);
+        when(transactionRepository.findById(transactionId)).thenReturn(Mono.just(transaction));
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenReturn(Mono.just(FactoryTest.toFactoryTransaction(TransactionResponse.class)));
+        when(dailyBalanceRepository.subtract(transaction)).thenReturn(Mono.empty());
+        when(dailyBalanceRepository.add(any(Transaction.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionService.updateTransaction(transactionId, Mono.just(transactionRequest), null))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        ArgumentCaptor<Transaction> added = ArgumentCaptor.forClass(Transaction.class);
+        verify(dailyBalanceRepository).add(added.capture());
+        assertEquals(transaction.getCreatedDate(), added.getValue().getCreatedDate());
+        assertEquals(transaction.getClientId(), added.getValue().getClientId());
+        assertEquals(transaction.getProductId(), added.getValue().getProductId());
+    }
+
+    @Test
+    void patchTransaction_shouldSetOnlyProvidedFields() {
+        String transactionId = UUID.randomUUID().toString();
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        transaction.setId(transactionId);
+        transaction.setDescription("previous");
+        OffsetDateTime expectedUpdatedDate = OffsetDateTime.now(ZoneOffset.UTC);
+        TransactionPatchRequest patchRequest = new TransactionPatchRequest()
+                .status(TransactionPatchRequest.StatusEnum.CANCELLED)
+                .expectedUpdatedDate(expectedUpdatedDate);
+        when(transactionRepository.patch(eq(transactionId), any(Transaction.class), eq(expectedUpdatedDate.toInstant())))
+                .thenReturn(Mono.just(transaction));
+
+        Mono<TransactionResponse> result = transactionService.patchTransaction(transactionId, Mono.just(patchRequest));
+
+        StepVerifier.create(result)
+                .expectNextMatches(response -> response.getStatus() == TransactionResponse.StatusEnum.CANCELLED
+                        && transactionId.equals(response.getId())
+                        && response.getAmount().compareTo(transaction.getAmount()) == 0
+                        && response.getUpdatedDate() != null)
+                .verifyComplete();
+        verify(dailyBalanceRepository, never()).subtract(any(Transaction.class));
+        verify(dailyBalanceRepository, never()).add(any(Transaction.class));
+    }
+
+    @Test
+    void patchTransaction_shouldMoveBalanceInRollupWhenBalanceChanges() {
+        String transactionId = UUID.randomUUID().toString();
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        transaction.setId(transactionId);
+        TransactionPatchRequest patchRequest = new TransactionPatchRequest().balance(50.0);
+        when(transactionRepository.patch(eq(transactionId), any(Transaction.class), isNull())).thenReturn(Mono.just(transaction));
+        when(dailyBalanceRepository.subtract(transaction)).thenReturn(Mono.empty());
+        when(dailyBalanceRepository.add(any(Transaction.class))).thenReturn(Mono.empty());
+
+        Mono<TransactionResponse> result = transactionService.patchTransaction(transactionId, Mono.just(patchRequest));
+
+        StepVerifier.create(result)
+                .expectNextMatches(response -> response.getBalance() == 50.0)
+                .verifyComplete();
+        verify(dailyBalanceRepository).subtract(transaction);
+        verify(dailyBalanceRepository).add(any(Transaction.class));
+    }
+
+    @Test
+    void patchTransaction_shouldReturnConflictWhenModifiedConcurrently() {
+        String transactionId = UUID.randomUUID().toString();
+        TransactionPatchRequest patchRequest = new TransactionPatchRequest()
+                .description("changed")
+                .expectedUpdatedDate(OffsetDateTime.now(ZoneOffset.UTC));
+        when(transactionRepository.patch(eq(transactionId), any(Transaction.class), any(Instant.class))).thenReturn(Mono.empty());
+        when(transactionRepository.existsById(transactionId)).thenReturn(Mono.just(true));
+
+        Mono<TransactionResponse> result = transactionService.patchTransaction(transactionId, Mono.just(patchRequest));
+
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        &&
+                        ((CustomException) throwable).getStatus() == 409)
+                .verify();
+    }
+
+    @Test
+    void patchTransaction_shouldReturnNotFound() {
+        String transactionId = UUID.randomUUID().toString();
+        when(transactionRepository.patch(eq(transactionId), any(Transaction.class), isNull())).thenReturn(Mono.empty());
+        when(transactionRepository.existsById(transactionId)).thenReturn(Mono.just(false));
+
+        Mono<TransactionResponse> result = transactionService.patchTransaction(transactionId, Mono.just(new TransactionPatchRequest().description("changed")));
+
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        &&
+                        ((CustomException) throwable).getStatus() == 404)
+                .verify();
+    }
+
+    @Test
+    void getProductSummary_shouldReturnRunningTotals() {
+        properties.getSummary().setEnabled(true);
+        ProductSummary productSummary = ProductSummary.builder()
+                .productId("product")
+                .balance(new BigDecimal("120.50"))
+                .commission(new BigDecimal("3.00"))
+                .count(4L)
+                .lastActivity(Instant.parse("2024-03-01T10:00:00Z"))
+                .build();
+        when(productSummaryRepository.findByProductId("product")).thenReturn(Mono.just(productSummary));
+
+        StepVerifier.create(transactionService.getProductSummary("product"))
+                .expectNextMatches(response -> response.getTransactionCount() == 4L
+                        && response.getBalance() == 120.5
+                        && response.getCommission() == 3.0
+                        && response.getLastActivity().toInstant().equals(productSummary.getLastActivity()))
+                .verifyComplete();
+    }
+
+    @Test
+    void getProductSummary_shouldReturnNotFoundWhenMissingOrDisabled() {
+        StepVerifier.create(transactionService.getProductSummary("product"))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && ((CustomException) throwable).getStatus() == 404)
+                .verify();
+        verify(productSummaryRepository, never()).findByProductId(anyString());
+
+        properties.getSummary().setEnabled(true);
+        when(productSummaryRepository.findByProductId("product")).thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionService.getProductSummary("product"))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && ((CustomException) throwable).getStatus() == 404)
+                .verify();
+    }
+
+    @Test
+    void getCommissionSummary_shouldMapTheBucketsOfTheDatabase() {
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 3, 31);
+        CommissionTotals january = CommissionTotals.builder()
+                .period("2024-01-01")
+                .sum(new BigDecimal("12.30"))
+                .count(3L)
+                .min(new BigDecimal("1.10"))
+                .max(new BigDecimal("9.00"))
+                .build();
+        when(transactionRepository.aggregateCommissions("product", startDate, endDate, Granularity.MONTH)).thenReturn(Flux.just(january));
+
+        StepVerifier.create(transactionService.getCommissionSummary("product", startDate, endDate, Granularity.MONTH))
+                .expectNextMatches(summary -> summary.getGranularity() == Granularity.MONTH
+                        && summary.getBuckets().size() == 1
+                        && summary.getBuckets().get(0).getPeriod().equals(startDate)
+                        && summary.getBuckets().get(0).getSum() == 12.3
+                        && summary.getBuckets().get(0).getCount() == 3L
+                        && summary.getBuckets().get(0).getMax() == 9.0)
+                .verifyComplete();
+    }
+
+    @Test
+    void getCommissionSummary_shouldDefaultToDays() {
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        when(transactionRepository.aggregateCommissions("product", day, day, Granularity.DAY)).thenReturn(Flux.empty());
+
+        StepVerifier.create(transactionService.getCommissionSummary("product", day, day, null))
+                .expectNextMatches(summary -> summary.getGranularity() == Granularity.DAY && summary.getBuckets().isEmpty())
+                .verifyComplete();
+    }
 }
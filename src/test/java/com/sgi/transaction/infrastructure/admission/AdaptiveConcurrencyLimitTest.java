@@ -0,0 +1,91 @@
+package com.sgi.transaction.infrastructure.admission;
+
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test class for the {@link AdaptiveConcurrencyLimit}.
+ * Verifies that the limit grows while Mongo latency is steady and shrinks once it rises.
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+    private final TransactionProperties.Admission.Concurrency properties = new TransactionProperties.Admission.Concurrency();
+
+    @Test
+    public void testLimitGrowsWhileLatencyIsSteady() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties);
+
+        sample(limit, 1_000_000, 1000);
+
+        assertEquals(properties.getMaxLimit(), limit.getLimit());
+    }
+
+    @Test
+    public void testLimitDoesNotGrowWhileLessThanHalfIsInFlight() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties);
+        limit.tryAcquire();
+
+        for (int i = 0; i < 1000; i++) {
+            limit.onSample(1_000_000);
+        }
+
+        assertEquals(properties.getInitialLimit(), limit.getLimit());
+    }
+
+    @Test
+    public void testLimitShrinksToTheMinimumWhenLatencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties);
+        sample(limit, 1_000_000, 1000);
+
+        sample(limit, 50_000_000, 100);
+
+        assertEquals(properties.getMinLimit(), limit.getLimit());
+    }
+
+    @Test
+    public void testConcurrentSamplesAreAllApplied() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        for (int i = 0; i < 4; i++) {
+            executor.execute(() -> sample(limit, 1_000_000, 250));
+        }
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(properties.getMaxLimit(), limit.getLimit());
+    }
+
+    @Test
+    public void testRequestsOverTheLimitAreNotAdmitted() {
+        properties.setInitialLimit(2);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        limit.release();
+        assertTrue(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+    }
+
+    /**
+     * Samples the latency with the limit fully in flight, as under load.
+     */
+    private void sample(AdaptiveConcurrencyLimit limit, long latencyNanos, int samples) {
+        for (int i = 0; i < samples; i++) {
+            while (limit.tryAcquire()) {
+                continue;
+            }
+            limit.onSample(latencyNanos);
+        }
+    }
+}
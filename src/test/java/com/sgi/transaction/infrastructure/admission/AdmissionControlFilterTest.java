@@ -0,0 +1,136 @@
+package com.sgi.transaction.infrastructure.admission;
+
+import com.sgi.transaction.infrastructure.config.JacksonConfig;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.controller.TransactionController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test class for the {@link AdmissionControlFilter}.
+ * Verifies the per-client rates, the concurrency limit and the 429 answered over them.
+ */
+public class AdmissionControlFilterTest {
+
+    private final HandlerMapping handlerMapping = mock(HandlerMapping.class);
+
+    private final TransactionProperties properties = new TransactionProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger forwarded = new AtomicInteger();
+
+    private final WebFilterChain chain = exchange -> {
+        forwarded.incrementAndGet();
+        return Mono.empty();
+    };
+
+    @Test
+    public void testClientOverItsRateIsRejectedWithRetryAfter() throws NoSuchMethodException {
+        TransactionProperties.Admission.Rate rate = new TransactionProperties.Admission.Rate();
+        rate.setRequestsPerSecond(0.5);
+        rate.setBurst(2);
+        properties.getAdmission().setRates(Map.of("getProductSummary", rate));
+        mapTo("getProductSummary");
+        AdmissionControlFilter filter = filter();
+
+        ServerWebExchange first = exchange("product-1");
+        ServerWebExchange second = exchange("product-1");
+        ServerWebExchange third = exchange("product-1");
+        ServerWebExchange otherClient = exchange("product-2");
+        StepVerifier.create(filter.filter(first, chain)
+                        .then(filter.filter(second, chain))
+                        .then(filter.filter(third, chain))
+                        .then(filter.filter(otherClient, chain)))
+                .verifyComplete();
+
+        assertEquals(3, forwarded.get());
+        assertNull(second.getResponse().getStatusCode());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, third.getResponse().getStatusCode());
+        assertEquals("2", third.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, meterRegistry.get(AdmissionControlFilter.COUNTER).tag("outcome", "rejected").tag("reason", "rate")
+                .counter().count());
+        assertEquals(3, meterRegistry.get(AdmissionControlFilter.COUNTER).tag("outcome", "admitted").counter().count());
+    }
+
+    @Test
+    public void testRequestOverTheConcurrencyLimitIsRejected() throws NoSuchMethodException {
+        properties.getAdmission().getConcurrency().setInitialLimit(1);
+        mapTo("getProductSummary");
+        AdmissionControlFilter filter = filter();
+        ServerWebExchange rejected = exchange("product-2");
+        WebFilterChain holding = exchange -> filter.filter(rejected, chain);
+
+        StepVerifier.create(filter.filter(exchange("product-1"), holding)).verifyComplete();
+
+        assertEquals(0, forwarded.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        StepVerifier.create(filter.filter(exchange("product-2"), chain)).verifyComplete();
+        assertEquals(1, forwarded.get());
+    }
+
+    @Test
+    public void testUnidentifiedClientIsNotRateLimited() throws NoSuchMethodException {
+        TransactionProperties.Admission.Rate rate = new TransactionProperties.Admission.Rate();
+        rate.setRequestsPerSecond(0.5);
+        rate.setBurst(1);
+        properties.getAdmission().setRates(Map.of("getProductSummary", rate));
+        mapTo("getProductSummary");
+        AdmissionControlFilter filter = filter();
+
+        StepVerifier.create(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/v1/transactions")), chain)
+                        .then(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/v1/transactions")), chain)))
+                .verifyComplete();
+
+        assertEquals(2, forwarded.get());
+    }
+
+    @Test
+    public void testRequestWithoutOperationIsNotLimited() {
+        properties.getAdmission().getConcurrency().setInitialLimit(0);
+        when(handlerMapping.getHandler(any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(filter().filter(exchange("product-1"), chain)).verifyComplete();
+
+        assertEquals(1, forwarded.get());
+    }
+
+    private AdmissionControlFilter filter() {
+        properties.getAdmission().setEnabled(true);
+        return new AdmissionControlFilter(new OperationResolver(handlerMapping),
+                new AdaptiveConcurrencyLimit(properties.getAdmission().getConcurrency()),
+                properties.getAdmission(), new JacksonConfig().objectMapper(), meterRegistry);
+    }
+
+    private void mapTo(String operation) throws NoSuchMethodException {
+        HandlerMethod handler = new HandlerMethod(mock(TransactionController.class), TransactionController.class.getMethod(operation,
+                String.class, ServerWebExchange.class));
+        when(handlerMapping.getHandler(any())).thenReturn(Mono.just(handler));
+    }
+
+    private ServerWebExchange exchange(String productId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/transactions/{productId}/summary", productId));
+        exchange.getAttributes().put(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("productId", productId));
+        return exchange;
+    }
+}
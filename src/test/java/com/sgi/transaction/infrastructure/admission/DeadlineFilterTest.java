@@ -0,0 +1,142 @@
+package com.sgi.transaction.infrastructure.admission;
+
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.controller.TransactionController;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test class for the {@link DeadlineFilter} and the {@link Deadline} it stores.
+ * Verifies the deadline given to each operation, the timeout header and the failure of a query past its deadline.
+ */
+public class DeadlineFilterTest {
+
+    private final HandlerMapping handlerMapping = mock(HandlerMapping.class);
+
+    private final TransactionProperties properties = new TransactionProperties();
+
+    private final AtomicReference<Deadline> deadline = new AtomicReference<>();
+
+    private final WebFilterChain chain = exchange -> Mono.deferContextual(context -> {
+        deadline.set(Deadline.from(context));
+        return Mono.empty();
+    });
+
+    @Test
+    public void testOperationGetsItsConfiguredDeadline() throws NoSuchMethodException {
+        properties.getDeadlines().setOperations(Map.of("getProductSummary", Duration.ofSeconds(3)));
+
+        StepVerifier.create(filter().filter(exchange(null), chain)).verifyComplete();
+
+        assertTrue(deadline.get().isBounded());
+        assertBetween(deadline.get().remaining(), Duration.ofSeconds(2), Duration.ofSeconds(3));
+    }
+
+    @Test
+    public void testHeaderShortensButNeverExtendsTheDeadline() throws NoSuchMethodException {
+        properties.getDeadlines().setOperations(Map.of("getProductSummary", Duration.ofSeconds(3)));
+
+        StepVerifier.create(filter().filter(exchange("500"), chain)).verifyComplete();
+        assertBetween(deadline.get().remaining(), Duration.ofMillis(1), Duration.ofMillis(500));
+
+        StepVerifier.create(filter().filter(exchange("60000"), chain)).verifyComplete();
+        assertBetween(deadline.get().remaining(), Duration.ofSeconds(2), Duration.ofSeconds(3));
+    }
+
+    @Test
+    public void testWriteGetsNoDeadline() throws NoSuchMethodException {
+        properties.getDeadlines().setOperations(Map.of("getProductSummary", Duration.ofSeconds(3)));
+
+        StepVerifier.create(filter().filter(MockServerWebExchange.from(MockServerHttpRequest.put("/v1/transactions/id").build()), chain))
+                .verifyComplete();
+
+        assertFalse(deadline.get().isBounded());
+    }
+
+    @Test
+    public void testZeroTimeoutMeansNoDeadline() throws NoSuchMethodException {
+        properties.getDeadlines().setDefaultTimeout(Duration.ZERO);
+
+        StepVerifier.create(filter().filter(exchange(null), chain)).verifyComplete();
+
+        assertFalse(deadline.get().isBounded());
+    }
+
+    @Test
+    public void testStreamingRequestGetsOnlyAnIdleDeadline() throws NoSuchMethodException {
+        properties.getDeadlines().setOperations(Map.of("getProductSummary", Duration.ofMillis(50)));
+        properties.getDeadlines().setStreamIdleTimeout(Duration.ofMillis(200));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/transactions/product/summary")
+                .accept(MediaType.APPLICATION_NDJSON));
+
+        StepVerifier.create(filter().filter(exchange, chain)).verifyComplete();
+
+        assertFalse(deadline.get().isBounded());
+        StepVerifier.create(Deadline.flux(bound -> Flux.interval(Duration.ofMillis(100)).take(5))
+                        .contextWrite(deadline.get()::store))
+                .expectNextCount(5)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testStreamPastItsIdleTimeoutIsCancelled() {
+        StepVerifier.create(Deadline.flux(bound -> Flux.concat(Mono.just(1L), Mono.never()))
+                        .contextWrite(Deadline.idle(Duration.ofMillis(50))::store))
+                .expectNext(1L)
+                .expectErrorMatches(ex -> ex instanceof CustomException custom
+                        && custom.getStatus() == 504)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void testQueryPastItsDeadlineIsCancelled() {
+        AtomicReference<Boolean> cancelled = new AtomicReference<>(false);
+
+        StepVerifier.create(Deadline.flux(bound -> Mono.never().doOnCancel(() -> cancelled.set(true)).flux())
+                        .contextWrite(Deadline.after(Duration.ofMillis(50))::store))
+                .expectErrorMatches(ex -> ex instanceof CustomException custom
+                        && custom.getStatus() == 504)
+                .verify(Duration.ofSeconds(5));
+
+        assertTrue(cancelled.get());
+    }
+
+    private DeadlineFilter filter() throws NoSuchMethodException {
+        HandlerMethod handler = new HandlerMethod(mock(TransactionController.class),
+                TransactionController.class.getMethod("getProductSummary", String.class, ServerWebExchange.class));
+        when(handlerMapping.getHandler(any())).thenReturn(Mono.just(handler));
+        return new DeadlineFilter(new OperationResolver(handlerMapping), properties.getDeadlines());
+    }
+
+    private ServerWebExchange exchange(String timeout) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/v1/transactions/product/summary");
+        if (timeout != null) {
+            request.header("X-Request-Timeout", timeout);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private void assertBetween(Duration actual, Duration min, Duration max) {
+        assertTrue(actual.compareTo(min) >= 0 && actual.compareTo(max) <= 0, () -> "Unexpected remaining time " + actual);
+    }
+}
@@ -1,10 +1,24 @@
 package com.sgi.transaction.infrastructure.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.sgi.transaction.domain.model.TransactionFilter;
+import com.sgi.transaction.domain.model.TransactionPage;
 import com.sgi.transaction.domain.ports.in.TransactionService;
+import com.sgi.transaction.domain.shared.CustomError;
 import com.sgi.transaction.helper.FactoryTest;
+import com.sgi.transaction.infrastructure.config.JacksonConfig;
 import com.sgi.transaction.infrastructure.dto.AverageReportResponse;
+import com.sgi.transaction.infrastructure.dto.CommissionBucket;
+import com.sgi.transaction.infrastructure.dto.CommissionSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.Granularity;
+import com.sgi.transaction.infrastructure.dto.ProductSummaryResponse;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
+import com.sgi.transaction.infrastructure.dto.TransactionPatchRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionRequest;
 import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.exception.CustomException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -15,7 +29,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
@@ -25,6 +42,7 @@ import static java.util.UUID.randomUUID;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 
 /**
@@ -44,7 +62,7 @@ public class TransactionControllerTest {
     @Test
     void createTransaction_shouldReturnCreatedResponse() {
         TransactionResponse transactionResponse = FactoryTest.toFactoryTransaction(TransactionResponse.class);
-        Mockito.when(transactionService.createTransaction(any(Mono.class)))
+        Mockito.when(transactionService.createTransaction(any(Mono.class), isNull()))
                 .thenReturn(Mono.just(transactionResponse));
         webTestClient.post()
                 .uri("/v1/transactions")
@@ -58,7 +76,46 @@ public class TransactionControllerTest {
                     Assertions.assertNotNull(actual.getAmount());
                 })
                 .returnResult();
-        Mockito.verify(transactionService, times(1)).createTransaction(any(Mono.class));
+        Mockito.verify(transactionService, times(1)).createTransaction(any(Mono.class), isNull());
+    }
+
+    @Test
+    void createTransactions_shouldReturnResultPerItem() {
+        TransactionBatchResult created = new TransactionBatchResult(0, TransactionBatchResult.StatusEnum.CREATED)
+                .transaction(FactoryTest.toFactoryTransaction(TransactionResponse.class));
+        TransactionBatchResult failed = new TransactionBatchResult(1, TransactionBatchResult.StatusEnum.FAILED);
+        Mockito.when(transactionService.createTransactions(any(Flux.class)))
+                .thenReturn(Flux.just(created, failed));
+        webTestClient.post()
+                .uri("/v1/transactions/batch")
+                .bodyValue(List.of(FactoryTest.toFactoryTransaction(TransactionRequest.class),
+                        FactoryTest.toFactoryTransaction(TransactionRequest.class)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionBatchResult.class)
+                .value(list -> assertThat(list).extracting(TransactionBatchResult::getStatus)
+                        .containsExactly(TransactionBatchResult.StatusEnum.CREATED, TransactionBatchResult.StatusEnum.FAILED));
+    }
+
+    @Test
+    void createTransactions_shouldAcceptNdjson() {
+        Mockito.when(transactionService.createTransactions(any(Flux.class)))
+                .thenAnswer(invocation -> ((Flux<TransactionRequest>) invocation.getArgument(0))
+                        .index()
+                        .map(item -> new TransactionBatchResult(item.getT1().intValue(), TransactionBatchResult.StatusEnum.CREATED)));
+        webTestClient.post()
+                .uri("/v1/transactions/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(Flux.just(FactoryTest.toFactoryTransaction(TransactionRequest.class),
+                        FactoryTest.toFactoryTransaction(TransactionRequest.class)), TransactionRequest.class)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(TransactionBatchResult.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNextCount(2)
+                .verifyComplete();
     }
 
     @Test
@@ -72,11 +129,25 @@ public class TransactionControllerTest {
                 .isOk();
     }
 
+    @Test
+    void deleteTransactions_shouldReturnDeletedCount() {
+        Mockito.when(transactionService.deleteTransactions(any(TransactionFilter.class))).thenReturn(Mono.just(5L));
+        webTestClient.delete()
+                .uri(uriBuilder -> uriBuilder.path("/v1/admin/transactions")
+                        .queryParam("productId", "product")
+                        .queryParam("from", "2024-01-01")
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.deletedCount").isEqualTo(5);
+    }
+
     @Test
     void getTransactionById_shouldReturnTransactionResponse() {
         String transactionId = UUID.randomUUID().toString();
         TransactionResponse transactionResponse = FactoryTest.toFactoryTransaction(TransactionResponse.class);
-        Mockito.when(transactionService.getTransactionById(transactionId))
+        Mockito.when(transactionService.getTransactionById(transactionId, null))
                 .thenReturn(Mono.just(transactionResponse));
         webTestClient.get()
                 .uri("/v1/transactions/{transactionId}", transactionId)
@@ -91,13 +162,28 @@ public class TransactionControllerTest {
                 });
     }
 
+    @Test
+    void getTransactionById_shouldPassFieldsToService() {
+        String transactionId = UUID.randomUUID().toString();
+        TransactionResponse transactionResponse = new TransactionResponse().id(transactionId).amount(BigDecimal.TEN);
+        Mockito.when(transactionService.getTransactionById(transactionId, "summary"))
+                .thenReturn(Mono.just(transactionResponse));
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/v1/transactions/{transactionId}").queryParam("fields", "summary").build(transactionId))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(transactionId)
+                .jsonPath("$.balance").doesNotExist();
+    }
+
     @Test
     void getAllTransactions_shouldReturnFluxOfTransactionResponse() {
         String productId = UUID.randomUUID().toString();
         String cardId = UUID.randomUUID().toString();
         List<TransactionResponse> transactions =  FactoryTest.toFactoryListTransactionResponse(UUID.randomUUID().toString());
-        Flux<TransactionResponse> transactionsFlux = Flux.fromIterable(transactions);
-        Mockito.when(transactionService.getAllTransactions(productId, cardId, 1, 10)).thenReturn(transactionsFlux);
+        Mockito.when(transactionService.getAllTransactions(productId, cardId, 1, 10, null, null))
+                .thenReturn(Mono.just(new TransactionPage(transactions, null)));
         webTestClient.get()
                 .uri(uriBuilder -> uriBuilder.path("/v1/transactions")
                         .queryParam("productId", productId)
@@ -107,16 +193,114 @@ public class TransactionControllerTest {
                         .build())
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().doesNotExist("X-Next-Cursor")
+                .expectBodyList(TransactionResponse.class)
+                .value(list -> assertThat(list).hasSize(1));
+    }
+
+    @Test
+    void getAllTransactions_shouldReturnCborWhenAccepted() throws IOException {
+        List<TransactionResponse> transactions = List.of(new TransactionResponse().id("first").amount(new BigDecimal("10.25")),
+                new TransactionResponse().id("second").amount(BigDecimal.ONE));
+        Mockito.when(transactionService.getAllTransactions(null, null, 1, 10, null, null))
+                .thenReturn(Mono.just(new TransactionPage(transactions, null)));
+
+        byte[] body = webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/v1/transactions").queryParam("page", 1).queryParam("size", 10).build())
+                .accept(MediaType.parseMediaType("application/cbor"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("application/cbor")
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        List<TransactionResponse> decoded = JacksonConfig.configure(new CBORMapper()).readValue(body, new TypeReference<>() { });
+        assertThat(decoded).extracting(TransactionResponse::getId).containsExactly("first", "second");
+        Assertions.assertEquals(new BigDecimal("10.25"), decoded.get(0).getAmount());
+    }
+
+    @Test
+    void getTransactionById_shouldReturnSmileWhenAccepted() throws IOException {
+        TransactionResponse transactionResponse = new TransactionResponse().id("id").amount(BigDecimal.TEN);
+        Mockito.when(transactionService.getTransactionById("id", null)).thenReturn(Mono.just(transactionResponse));
+
+        byte[] body = webTestClient.get()
+                .uri("/v1/transactions/{transactionId}", "id")
+                .accept(MediaType.parseMediaType("application/x-jackson-smile"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("application/x-jackson-smile")
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        TransactionResponse decoded = JacksonConfig.configure(new SmileMapper()).readValue(body, TransactionResponse.class);
+        Assertions.assertEquals("id", decoded.getId());
+    }
+
+    @Test
+    void getAllTransactions_shouldReturnNextCursorHeader() {
+        String cursor = UUID.randomUUID().toString();
+        List<TransactionResponse> transactions =  FactoryTest.toFactoryListTransactionResponse(UUID.randomUUID().toString());
+        Mockito.when(transactionService.getAllTransactions(null, null, 1, 1, cursor, null))
+                .thenReturn(Mono.just(new TransactionPage(transactions, "next")));
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/v1/transactions")
+                        .queryParam("size", 1)
+                        .queryParam("cursor", cursor)
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Next-Cursor", "next")
                 .expectBodyList(TransactionResponse.class)
                 .value(list -> assertThat(list).hasSize(1));
     }
 
 
+    @Test
+    void getAllTransactions_shouldStreamNdjson() {
+        List<TransactionResponse> transactions =  FactoryTest.toFactoryListTransactionResponse(UUID.randomUUID().toString());
+        Mockito.when(transactionService.streamAllTransactions(null, null, 1, 10, null, null))
+                .thenReturn(Flux.fromIterable(transactions));
+        webTestClient.get()
+                .uri("/v1/transactions")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(TransactionResponse.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNextCount(1)
+                .verifyComplete();
+        Mockito.verify(transactionService, Mockito.never()).getAllTransactions(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getTransactionsByProductId_shouldStreamServerSentEvents() {
+        String productId = UUID.randomUUID().toString();
+        TransactionResponse transactionResponse = FactoryTest.toFactoryTransaction(TransactionResponse.class);
+        Mockito.when(transactionService.getTransactionsByAccountId(productId, null))
+                .thenReturn(Flux.just(transactionResponse, transactionResponse));
+        webTestClient.get()
+                .uri("/v1/transactions/{productId}/card", productId)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(TransactionResponse.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
     @Test
     void getTransactionsByProductId_shouldReturnTransactionResponse() {
         String productId = UUID.randomUUID().toString();
         TransactionResponse transactionResponse = FactoryTest.toFactoryTransaction(TransactionResponse.class);
-        Mockito.when(transactionService.getTransactionsByAccountId(productId))
+        Mockito.when(transactionService.getTransactionsByAccountId(productId, null))
                 .thenReturn(Flux.just(transactionResponse));
         webTestClient.get()
                 .uri("/v1/transactions/{productId}/card", productId)
@@ -135,7 +319,7 @@ public class TransactionControllerTest {
         LocalDate endDate = LocalDate.now();
         List<TransactionResponse> transactions =  FactoryTest.toFactoryListTransactionResponse(productId);
         Flux<TransactionResponse> transactionsFlux = Flux.fromIterable(transactions);
-        Mockito.when(transactionService.getCommissionsByProductAndPeriod(productId, startDate, endDate)).thenReturn(transactionsFlux);
+        Mockito.when(transactionService.getCommissionsByProductAndPeriod(productId, startDate, endDate, null)).thenReturn(transactionsFlux);
         webTestClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/v1/transactions/{productId}/commissions")
@@ -173,7 +357,7 @@ public class TransactionControllerTest {
         TransactionRequest transactionRequest = FactoryTest.toFactoryTransaction(TransactionRequest.class);
         TransactionResponse transactionResponse = FactoryTest.toFactoryTransaction(TransactionResponse.class);
 
-        Mockito.when(transactionService.updateTransaction(eq(transactionId), any(Mono.class)))
+        Mockito.when(transactionService.updateTransaction(eq(transactionId), any(Mono.class), isNull()))
                 .thenReturn(Mono.just(transactionResponse));
 
         webTestClient.put()
@@ -184,9 +368,96 @@ public class TransactionControllerTest {
                 .expectHeader().contentType(MediaType.APPLICATION_JSON)
                 .expectBody(TransactionResponse.class);
 
-        Mockito.verify(transactionService, times(1)).updateTransaction(eq(transactionId), any(Mono.class));
+        Mockito.verify(transactionService, times(1)).updateTransaction(eq(transactionId), any(Mono.class), isNull());
+    }
+
+    @Test
+    void patchTransaction_shouldReturnTransactionResponse() {
+        String transactionId = randomUUID().toString();
+        TransactionResponse transactionResponse = FactoryTest.toFactoryTransaction(TransactionResponse.class);
+
+        Mockito.when(transactionService.patchTransaction(eq(transactionId), any(Mono.class)))
+                .thenReturn(Mono.just(transactionResponse));
+
+        webTestClient.patch()
+                .uri("/v1/transactions/{transactionId}", transactionId)
+                .bodyValue(new TransactionPatchRequest().status(TransactionPatchRequest.StatusEnum.CANCELLED))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionResponse.class);
+
+        Mockito.verify(transactionService, times(1)).patchTransaction(eq(transactionId), any(Mono.class));
     }
 
+    @Test
+    void patchTransaction_shouldReturnConflict() {
+        String transactionId = randomUUID().toString();
 
+        Mockito.when(transactionService.patchTransaction(eq(transactionId), any(Mono.class)))
+                .thenReturn(Mono.error(new CustomException(CustomError.E_TRANSACTION_CONFLICT)));
 
+        webTestClient.patch()
+                .uri("/v1/transactions/{transactionId}", transactionId)
+                .bodyValue(new TransactionPatchRequest().description("changed"))
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void createTransaction_shouldPassIdempotencyKeyAndRejectReuse() {
+        Mockito.when(transactionService.createTransaction(any(Mono.class), eq("key-1")))
+                .thenReturn(Mono.error(new CustomException(CustomError.E_IDEMPOTENCY_KEY_REUSED)));
+
+        webTestClient.post()
+                .uri("/v1/transactions")
+                .header("Idempotency-Key", "key-1")
+                .bodyValue(FactoryTest.toFactoryTransaction(TransactionRequest.class))
+                .exchange()
+                .expectStatus().isEqualTo(422);
+    }
+
+    @Test
+    void getProductSummary_shouldReturnSummary() {
+        ProductSummaryResponse productSummary = new ProductSummaryResponse("product", 4L).balance(120.5).commission(3.0);
+        Mockito.when(transactionService.getProductSummary("product")).thenReturn(Mono.just(productSummary));
+
+        webTestClient.get()
+                .uri("/v1/transactions/{productId}/summary", "product")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ProductSummaryResponse.class)
+                .isEqualTo(productSummary);
+    }
+
+    @Test
+    void getProductSummary_shouldReturnNotFound() {
+        Mockito.when(transactionService.getProductSummary("product"))
+                .thenReturn(Mono.error(new CustomException(CustomError.E_PRODUCT_SUMMARY_NOT_FOUND)));
+
+        webTestClient.get()
+                .uri("/v1/transactions/{productId}/summary", "product")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void getCommissionSummary_shouldReturnBuckets() {
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 3, 31);
+        CommissionSummaryResponse summary = new CommissionSummaryResponse("product", Granularity.MONTH,
+                List.of(new CommissionBucket(startDate, 12.3, 3L)));
+        Mockito.when(transactionService.getCommissionSummary("product", startDate, endDate, Granularity.MONTH)).thenReturn(Mono.just(summary));
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/transactions/{productId}/commissions/summary")
+                        .queryParam("from", startDate.toString())
+                        .queryParam("to", endDate.toString())
+                        .queryParam("granularity", "MONTH")
+                        .build("product"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CommissionSummaryResponse.class)
+                .isEqualTo(summary);
+    }
 }
@@ -0,0 +1,83 @@
+package com.sgi.transaction.infrastructure.pool;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit test class for the {@link ConnectionPoolMonitor} and its {@link ConnectionPoolHealthIndicator}.
+ * Verifies the pool metrics and that the pools are degraded only while their wait queue stays saturated.
+ */
+public class ConnectionPoolMonitorTest {
+
+    private static final ServerId SERVER = new ServerId(new ClusterId(), new ServerAddress());
+
+    private final TransactionProperties.Pool properties = new TransactionProperties.Pool();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testCheckOutsArePublished() {
+        ConnectionPoolMonitor monitor = new ConnectionPoolMonitor(properties, meterRegistry);
+        ConnectionId connection = new ConnectionId(SERVER);
+
+        monitor.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(SERVER, 1));
+        monitor.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(SERVER, 2));
+        monitor.connectionCheckedOut(new ConnectionCheckedOutEvent(connection, 1, TimeUnit.MILLISECONDS.toNanos(3)));
+
+        assertEquals(1.0, meterRegistry.get(ConnectionPoolMonitor.METER + ".checked.out").gauge().value());
+        assertEquals(1.0, meterRegistry.get(ConnectionPoolMonitor.METER + ".wait.queue").gauge().value());
+
+        monitor.connectionCheckOutFailed(new ConnectionCheckOutFailedEvent(SERVER, 2, ConnectionCheckOutFailedEvent.Reason.TIMEOUT,
+                TimeUnit.SECONDS.toNanos(2)));
+        monitor.connectionCheckedIn(new ConnectionCheckedInEvent(connection, 1));
+
+        assertEquals(0.0, meterRegistry.get(ConnectionPoolMonitor.METER + ".checked.out").gauge().value());
+        assertEquals(0.0, meterRegistry.get(ConnectionPoolMonitor.METER + ".wait.queue").gauge().value());
+        assertEquals(3.0, meterRegistry.get(ConnectionPoolMonitor.METER + ".wait").tag("outcome", "success").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, meterRegistry.get(ConnectionPoolMonitor.METER + ".wait").tag("outcome", "timeout").timer().count());
+    }
+
+    @Test
+    public void testPoolsAreDegradedWhileTheWaitQueueStaysSaturated() {
+        properties.setSaturationThreshold(2);
+        properties.setSaturationPeriod(Duration.ZERO);
+        ConnectionPoolMonitor monitor = new ConnectionPoolMonitor(properties, meterRegistry);
+        ConnectionPoolHealthIndicator health = new ConnectionPoolHealthIndicator(monitor, properties);
+
+        monitor.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(SERVER, 1));
+        assertEquals(Status.UP, health.health().getStatus());
+
+        monitor.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(SERVER, 2));
+        assertEquals(ConnectionPoolHealthIndicator.DEGRADED, health.health().getStatus());
+
+        monitor.connectionCheckedOut(new ConnectionCheckedOutEvent(new ConnectionId(SERVER), 1, 0));
+        assertEquals(Status.UP, health.health().getStatus());
+    }
+
+    @Test
+    public void testShortSaturationKeepsThePoolsUp() {
+        properties.setSaturationThreshold(1);
+        ConnectionPoolMonitor monitor = new ConnectionPoolMonitor(properties, meterRegistry);
+
+        monitor.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(SERVER, 1));
+
+        assertEquals(Status.UP, new ConnectionPoolHealthIndicator(monitor, properties).health().getStatus());
+    }
+}
@@ -0,0 +1,151 @@
+package com.sgi.transaction.infrastructure.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.sgi.transaction.domain.model.DailyBalance;
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.helper.FactoryTest;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.repository.impl.DailyBalanceRepositoryImpl;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test class for the {@link DailyBalanceRepositoryImpl} repository.
+ * Verifies the atomic updates sent to the daily balance rollup and the report query.
+ */
+@ExtendWith(MockitoExtension.class)
+public class DailyBalanceRepositoryImplTest {
+
+    @InjectMocks
+    private DailyBalanceRepositoryImpl dailyBalanceRepository;
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Spy
+    private TransactionProperties properties = new TransactionProperties();
+
+    @Test
+    public void testAdd() {
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        transaction.setCreatedDate(Instant.parse("2024-05-10T23:59:59Z"));
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.upsert(queryCaptor.capture(), updateCaptor.capture(), eq(DailyBalance.class)))
+                .thenReturn(Mono.just(mock(UpdateResult.class)));
+
+        StepVerifier.create(dailyBalanceRepository.add(transaction))
+                .verifyComplete();
+
+        assertEquals("2024-05-10", queryCaptor.getValue().getQueryObject().get("day"));
+        Document update = updateCaptor.getValue().getUpdateObject();
+        assertEquals(1L, update.get("$inc", Document.class).get("count"));
+        assertTrue(update.containsKey("$min"));
+        assertTrue(update.containsKey("$max"));
+    }
+
+    @Test
+    public void testAddAllFoldsTransactionsOfTheSameDay() {
+        Transaction transaction1 = FactoryTest.toFactoryEntityTransaction();
+        Transaction transaction2 = FactoryTest.toFactoryEntityTransaction();
+        transaction2.setClientId(transaction1.getClientId());
+        transaction2.setProductId(transaction1.getProductId());
+        transaction2.setCreatedDate(transaction1.getCreatedDate());
+        Transaction transaction3 = FactoryTest.toFactoryEntityTransaction();
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyBalance.class)).thenReturn(bulkOperations);
+        when(bulkOperations.upsert(any(Query.class), any(Update.class))).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.unacknowledged()));
+
+        StepVerifier.create(dailyBalanceRepository.addAll(List.of(transaction1, transaction2, transaction3)))
+                .verifyComplete();
+
+        verify(bulkOperations, times(2)).upsert(any(Query.class), any(Update.class));
+    }
+
+    @Test
+    public void testSubtract() {
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.updateFirst(any(Query.class), updateCaptor.capture(), eq(DailyBalance.class)))
+                .thenReturn(Mono.just(mock(UpdateResult.class)));
+
+        StepVerifier.create(dailyBalanceRepository.subtract(transaction))
+                .verifyComplete();
+
+        assertEquals(-1L, updateCaptor.getValue().getUpdateObject().get("$inc", Document.class).get("count"));
+    }
+
+    @Test
+    public void testSubtractAll() {
+        Transaction first = FactoryTest.toFactoryEntityTransaction();
+        Transaction second = FactoryTest.toFactoryEntityTransaction();
+        second.setClientId(first.getClientId());
+        second.setProductId(first.getProductId());
+        second.setCreatedDate(first.getCreatedDate());
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyBalance.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(any(Query.class), updateCaptor.capture())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.unacknowledged()));
+
+        StepVerifier.create(dailyBalanceRepository.subtractAll(List.of(first, second)))
+                .verifyComplete();
+
+        verify(bulkOperations, times(1)).updateOne(any(Query.class), any(Update.class));
+        assertEquals(-2L, updateCaptor.getValue().getUpdateObject().get("$inc", Document.class).get("count"));
+    }
+
+    @Test
+    public void testAddSkipsTransactionWithoutCreatedDate() {
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        transaction.setCreatedDate(null);
+
+        StepVerifier.create(dailyBalanceRepository.add(transaction))
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(DailyBalance.class));
+    }
+
+    @Test
+    public void testFindByClientIdAndDayBetween() {
+        String clientId = UUID.randomUUID().toString();
+        DailyBalance dailyBalance = DailyBalance.builder().clientId(clientId).build();
+        when(mongoTemplate.find(any(Query.class), eq(DailyBalance.class))).thenReturn(Flux.just(dailyBalance));
+
+        StepVerifier.create(dailyBalanceRepository.findByClientIdAndDayBetween(clientId, LocalDate.now(), LocalDate.now()))
+                .expectNext(dailyBalance)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,43 @@
+package com.sgi.transaction.infrastructure.repository;
+
+import com.sgi.transaction.domain.model.DailyBalance;
+import com.sgi.transaction.domain.model.IdempotencyRecord;
+import com.sgi.transaction.domain.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test class for the index migration in {@code src/main/mongo/indexes.js}.
+ * Verifies that the migration creates every index the entities declare, so the two cannot drift apart.
+ */
+public class IndexMigrationTest {
+
+    @Test
+    public void testMigrationCreatesTheDeclaredIndexes() throws IOException {
+        String migration = Files.readString(Path.of("src/main/mongo/indexes.js"));
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+        for (Class<?> entity : List.of(Transaction.class, DailyBalance.class, IdempotencyRecord.class)) {
+            for (IndexDefinition index : resolver.resolveIndexFor(entity)) {
+                String keys = index.getIndexKeys().entrySet().stream()
+                        .map(key -> key.getKey() + ": " + key.getValue())
+                        .collect(Collectors.joining(", ", "{ ", " }"));
+                String declaration = "{ key: " + keys + ", name: '" + index.getIndexOptions().getString("name") + "'";
+                assertTrue(migration.contains(declaration), () -> "Missing from the migration: " + declaration);
+            }
+        }
+    }
+}
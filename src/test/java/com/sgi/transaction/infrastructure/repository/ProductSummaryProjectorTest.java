@@ -0,0 +1,203 @@
+package com.sgi.transaction.infrastructure.repository;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.sgi.transaction.domain.model.ChangeStreamCheckpoint;
+import com.sgi.transaction.domain.model.ProductSummary;
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.repository.impl.ProductSummaryProjector;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test class for the {@link ProductSummaryProjector}.
+ * Verifies how changes are turned into guarded upserts, that the resume token is checkpointed
+ * and that a lost history rebuilds the summaries.
+ */
+public class ProductSummaryProjectorTest {
+
+    private static final BsonTimestamp CLUSTER_TIME = new BsonTimestamp(1_700_000_000, 1);
+
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+
+    private final ProductSummaryProjector projector = new ProductSummaryProjector(mongoTemplate, new TransactionProperties());
+
+    @Test
+    public void testInsertAddsToItsProduct() {
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(ProductSummary.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+        StepVerifier.create(projector.apply(event(OperationType.INSERT, null, transaction("product", "2.50"))))
+                .verifyComplete();
+
+        List<Document> set = setStages(1);
+        assertEquals(List.of(new Document("$ifNull", List.of("$count", 0L)), 1L), set.get(0).get("count", Document.class).get("$add"));
+        assertEquals(new Decimal128(new BigDecimal("2.50")),
+                set.get(0).get("commission", Document.class).getList("$add", Object.class).get(1));
+        assertEquals(CLUSTER_TIME.getValue(), set.get(0).get("lastEvent"));
+        assertEquals(List.of("balance", "lastActivity"), set.get(0).keySet().stream()
+                .filter(key -> key.equals("balance") || key.equals("lastActivity")).toList());
+    }
+
+    @Test
+    public void testUpdateToAnotherProductMovesTheTransaction() {
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(ProductSummary.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(projector.apply(event(OperationType.UPDATE, transaction("old", "1.00"), transaction("new", "1.00"))))
+                .verifyComplete();
+
+        List<Document> set = setStages(2);
+        assertEquals(-1L, set.get(0).get("count", Document.class).getList("$add", Object.class).get(1));
+        assertEquals(false, set.get(0).containsKey("balance"));
+        assertEquals(1L, set.get(1).get("count", Document.class).getList("$add", Object.class).get(1));
+    }
+
+    @Test
+    public void testReplayedChangeIsIgnored() {
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(ProductSummary.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000")));
+
+        StepVerifier.create(projector.apply(event(OperationType.DELETE, transaction("product", "1.00"), null)))
+                .verifyComplete();
+    }
+
+    @Test
+    public void testStreamResumesAfterCheckpointAndSavesTheLastToken() {
+        BsonDocument token = new BsonDocument("_data", new BsonInt32(42));
+        ChangeStreamEvent<Transaction> event = event(OperationType.INSERT, null, transaction("product", "1.00"));
+        when(event.getResumeToken()).thenReturn(token);
+        when(mongoTemplate.collectionExists("transaction")).thenReturn(Mono.just(true));
+        when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(Mono.just(new Document("ok", 1)));
+        when(mongoTemplate.findById("product-summary", ChangeStreamCheckpoint.class))
+                .thenReturn(Mono.just(new ChangeStreamCheckpoint("product-summary", "{\"_data\": 41}", Instant.now())));
+        when(mongoTemplate.<Transaction>changeStream(isNull(), eq("transaction"), any(ChangeStreamOptions.class), eq(Transaction.class)))
+                .thenReturn(Flux.just(event));
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(ProductSummary.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.save(any(ChangeStreamCheckpoint.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(projector.run()).verifyComplete();
+
+        ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        verify(mongoTemplate).changeStream(isNull(), eq("transaction"), options.capture(), eq(Transaction.class));
+        assertEquals(BsonDocument.parse("{\"_data\": 41}"), options.getValue().getResumeToken().orElseThrow());
+        ArgumentCaptor<ChangeStreamCheckpoint> checkpoint = ArgumentCaptor.forClass(ChangeStreamCheckpoint.class);
+        verify(mongoTemplate).save(checkpoint.capture());
+        assertEquals(token.toJson(), checkpoint.getValue().getResumeToken());
+    }
+
+    @Test
+    public void testLostHistoryClearsTheCheckpointAndRebuildsTheSummaries() {
+        ChangeStreamEvent<Transaction> event = event(OperationType.INSERT, null, transaction("product", "1.00"));
+        when(event.getResumeToken()).thenReturn(new BsonDocument("_data", new BsonInt32(42)));
+        when(mongoTemplate.collectionExists("transaction")).thenReturn(Mono.just(true));
+        when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(Mono.just(new Document("ok", 1)));
+        when(mongoTemplate.findById("product-summary", ChangeStreamCheckpoint.class))
+                .thenReturn(Mono.just(new ChangeStreamCheckpoint("product-summary", "{\"_data\": 41}", Instant.now())))
+                .thenReturn(Mono.empty());
+        when(mongoTemplate.remove(any(Query.class), eq(ChangeStreamCheckpoint.class))).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("transaction"), eq(Document.class))).thenReturn(Flux.empty());
+        when(mongoTemplate.<Transaction>changeStream(isNull(), eq("transaction"), any(ChangeStreamOptions.class), eq(Transaction.class)))
+                .thenReturn(Flux.error(historyLost()))
+                .thenReturn(Flux.just(event));
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(ProductSummary.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.save(any(ChangeStreamCheckpoint.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(mongoTemplate.getCollectionName(ProductSummary.class)).thenReturn("product_summary");
+
+        StepVerifier.create(new ProductSummaryProjector(mongoTemplate, new TransactionProperties()).run()).verifyComplete();
+
+        verify(mongoTemplate).remove(any(Query.class), eq(ChangeStreamCheckpoint.class));
+        verify(mongoTemplate).aggregate(any(Aggregation.class), eq("transaction"), eq(Document.class));
+        ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        verify(mongoTemplate, times(2)).changeStream(isNull(), eq("transaction"), options.capture(), eq(Transaction.class));
+        assertTrue(options.getAllValues().get(1).getResumeTimestamp().isPresent());
+    }
+
+    @Test
+    public void testProjectionStopsAndReportsDownOnceRetriesAreExhausted() {
+        TransactionProperties properties = new TransactionProperties();
+        properties.getSummary().setEnabled(true);
+        properties.getSummary().setMaxRetries(0);
+        when(mongoTemplate.collectionExists("transaction")).thenReturn(Mono.just(true));
+        when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(Mono.just(new Document("ok", 1)));
+        when(mongoTemplate.findById("product-summary", ChangeStreamCheckpoint.class)).thenReturn(Mono.error(new IllegalStateException("down")));
+        ProductSummaryProjector stopping = new ProductSummaryProjector(mongoTemplate, properties);
+
+        stopping.start();
+
+        assertEquals(Status.DOWN, stopping.health().getStatus());
+        assertFalse(stopping.isRunning());
+    }
+
+    private static MongoCommandException historyLost() {
+        return new MongoCommandException(new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(286))
+                .append("errmsg", new BsonString("Resume of change stream was not possible")), new ServerAddress());
+    }
+
+    private List<Document> setStages(int upserts) {
+        ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, times(upserts)).upsert(any(Query.class), updates.capture(), eq(ProductSummary.class));
+        return updates.getAllValues().stream()
+                .map(update -> ((AggregationUpdate) update).toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$set", Document.class))
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ChangeStreamEvent<Transaction> event(OperationType operation, Transaction before, Transaction after) {
+        ChangeStreamEvent<Transaction> event = mock(ChangeStreamEvent.class);
+        when(event.getOperationType()).thenReturn(operation);
+        when(event.getBsonTimestamp()).thenReturn(CLUSTER_TIME);
+        when(event.getBodyBeforeChange()).thenReturn(before);
+        when(event.getBody()).thenReturn(after);
+        return event;
+    }
+
+    private Transaction transaction(String productId, String commission) {
+        return Transaction.builder()
+                .productId(productId)
+                .commission(new BigDecimal(commission))
+                .balance(new BigDecimal("100.00"))
+                .createdDate(Instant.parse("2024-03-01T10:00:00Z"))
+                .build();
+    }
+}
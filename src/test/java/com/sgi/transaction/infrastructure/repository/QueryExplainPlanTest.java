@@ -0,0 +1,203 @@
+package com.sgi.transaction.infrastructure.repository;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.sgi.transaction.domain.model.DailyBalance;
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.domain.model.TransactionCursor;
+import com.sgi.transaction.domain.model.TransactionFields;
+import com.sgi.transaction.domain.model.TransactionFilter;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.repository.impl.DailyBalanceRepositoryImpl;
+import com.sgi.transaction.infrastructure.repository.impl.TransactionRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Explain plan regression harness for the repository queries.
+ * Runs every repository operation against an embedded Mongo, records the commands the driver sends
+ * and explains each of them. The build fails when a winning plan scans the whole collection or, for
+ * queries that read documents in a given order, sorts them in memory.
+ * Run with the explain-plan profile: {@code mvn -Pexplain-plan test}; the ci profile runs it with the rest of the suite.
+ */
+@Tag("explain-plan")
+@DataMongoTest(properties = "de.flapdoodle.mongodb.embedded.version=7.0.14")
+@Import(QueryExplainPlanTest.CommandRecorderConfig.class)
+public class QueryExplainPlanTest {
+
+    private static final Set<String> EXPLAINABLE = Set.of("find", "aggregate", "findAndModify", "update", "delete");
+
+    private static final Set<String> DRIVER_FIELDS = Set.of("$db", "lsid", "$clusterTime", "$readPreference", "txnNumber", "apiVersion");
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private CommandRecorder commandRecorder;
+
+    private final TransactionProperties properties = new TransactionProperties();
+
+    private TransactionRepositoryImpl transactionRepository;
+
+    private DailyBalanceRepositoryImpl dailyBalanceRepository;
+
+    private List<Transaction> transactions;
+
+    /**
+     * Recreates the collections with the declared indexes and a data set spread over several
+     * clients, products and cards, so the planner has real alternatives to choose from.
+     */
+    @BeforeEach
+    public void setUp() {
+        MongoPersistentEntityIndexResolver indexResolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> entity : List.of(Transaction.class, DailyBalance.class)) {
+            mongoTemplate.dropCollection(entity).block();
+            Flux.fromIterable(indexResolver.resolveIndexFor(entity))
+                    .concatMap(index -> mongoTemplate.indexOps(entity).ensureIndex(index))
+                    .blockLast();
+        }
+        transactions = new ArrayList<>();
+        for (int index = 0; index < 500; index++) {
+            transactions.add(Transaction.builder()
+                    .id(new ObjectId().toHexString())
+                    .clientId("client-" + index % 20)
+                    .productId("product-" + index % 50)
+                    .cardId("card-" + index % 40)
+                    .status(index % 10 == 0 ? "FAILED" : "COMPLETED")
+                    .amount(BigDecimal.TEN)
+                    .commission(index % 3 == 0 ? BigDecimal.ONE : null)
+                    .balance(BigDecimal.valueOf(index))
+                    .createdDate(START.plusSeconds(index * 3_600L))
+                    .updatedDate(START.plusSeconds(index * 3_600L))
+                    .build());
+        }
+        mongoTemplate.insertAll(transactions).blockLast();
+        transactionRepository = new TransactionRepositoryImpl(mongoTemplate, properties, new SimpleMeterRegistry());
+        dailyBalanceRepository = new DailyBalanceRepositoryImpl(mongoTemplate, properties);
+        commandRecorder.commands.clear();
+    }
+
+    @Test
+    public void everyRepositoryQueryUsesAnIndex() {
+        Transaction transaction = transactions.get(42);
+        TransactionCursor cursor = new TransactionCursor(transaction.getCreatedDate(), transaction.getId());
+        LocalDate from = LocalDate.of(2024, 1, 2);
+        LocalDate to = LocalDate.of(2024, 1, 9);
+
+        transactionRepository.findAll(transaction.getProductId(), null, 1, 10, TransactionFields.ALL).blockLast();
+        transactionRepository.findAll(null, transaction.getCardId(), 1, 10, TransactionFields.ALL).blockLast();
+        transactionRepository.findAll(transaction.getProductId(), transaction.getCardId(), 2, 10, TransactionFields.ALL).blockLast();
+        transactionRepository.findAll(null, null, 1, 10, TransactionFields.ALL).blockLast();
+        transactionRepository.findAll(transaction.getProductId(), transaction.getCardId(), cursor, 10, TransactionFields.ALL).blockLast();
+        transactionRepository.findAll(null, null, cursor, 10, TransactionFields.ALL).blockLast();
+        transactionRepository.findById(transaction.getId()).block();
+        transactionRepository.findById(transaction.getId(), TransactionFields.parse("summary")).block();
+        transactionRepository.existsById(transaction.getId()).block();
+        transactionRepository.getTransactionsByAccountId(transaction.getProductId(), TransactionFields.ALL).blockLast();
+        transactionRepository.getCommissionsByProductAndPeriod(transaction.getProductId(), from, to, TransactionFields.ALL).blockLast();
+        transactionRepository.aggregateDailyBalancesForClient(transaction.getClientId(), from, to).blockLast();
+        transactionRepository.patch(transaction.getId(), Transaction.builder().status("CANCELLED").build(), transaction.getUpdatedDate()).block();
+        dailyBalanceRepository.add(transaction).block();
+        dailyBalanceRepository.subtract(transaction).block();
+        dailyBalanceRepository.findByClientIdAndDayBetween(transaction.getClientId(), from, to).blockLast();
+        TransactionFilter filter = TransactionFilter.builder().productId(transaction.getProductId()).from(from).to(to).build();
+        transactionRepository.deleteById(transaction.getId()).block();
+        transactionRepository.deleteAll(filter).blockLast();
+        transactionRepository.deleteAll(TransactionFilter.builder().status("FAILED").build()).blockLast();
+
+        List<BsonDocument> commands = List.copyOf(commandRecorder.commands);
+        assertFalse(commands.isEmpty(), "No query was recorded");
+        List<String> violations = new ArrayList<>();
+        commands.forEach(command -> violations.addAll(violationsOf(command)));
+        assertTrue(violations.isEmpty(), String.join(System.lineSeparator(), violations));
+    }
+
+    private List<String> violationsOf(BsonDocument recorded) {
+        BsonDocument command = recorded.clone();
+        DRIVER_FIELDS.forEach(command::remove);
+        String commandName = command.getFirstKey();
+        Document explain = mongoTemplate.executeCommand(new Document("explain", command).append("verbosity", "queryPlanner")).block();
+        Set<String> forbidden = "aggregate".equals(commandName) ? Set.of("COLLSCAN") : Set.of("COLLSCAN", "SORT");
+        List<String> stages = new ArrayList<>();
+        collectStages(explain, false, stages);
+        return stages.stream()
+                .filter(forbidden::contains)
+                .map(stage -> stage + " in " + command.toJson())
+                .toList();
+    }
+
+    private void collectStages(Object node, boolean inWinningPlan, List<String> stages) {
+        if (node instanceof Map<?, ?> document) {
+            document.forEach((key, value) -> {
+                if (inWinningPlan && "stage".equals(key)) {
+                    stages.add(String.valueOf(value));
+                }
+                if (!"rejectedPlans".equals(key)) {
+                    collectStages(value, inWinningPlan || "winningPlan".equals(key), stages);
+                }
+            });
+        } else if (node instanceof List<?> list) {
+            list.forEach(item -> collectStages(item, inWinningPlan, stages));
+        }
+    }
+
+    /**
+     * Registers the command recorder on the client built by Spring Boot.
+     */
+    @TestConfiguration
+    static class CommandRecorderConfig {
+
+        @Bean
+        CommandRecorder commandRecorder() {
+            return new CommandRecorder();
+        }
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer recordCommands(CommandRecorder commandRecorder) {
+            return builder -> builder.addCommandListener(commandRecorder);
+        }
+    }
+
+    /**
+     * Keeps a copy of every command that can be explained.
+     */
+    static class CommandRecorder implements CommandListener {
+
+        private final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            if (EXPLAINABLE.contains(event.getCommandName())) {
+                commands.add(event.getCommand().clone());
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.sgi.transaction.infrastructure.repository;
+
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.helper.FactoryTest;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.repository.impl.TransactionCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit test class for the {@link TransactionCache}.
+ * Verifies read-through loading, load coalescing, invalidation and the published metrics.
+ */
+public class TransactionCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() {
+        TransactionCache cache = new TransactionCache(enabled(), meterRegistry);
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+
+        StepVerifier.create(Flux.merge(
+                        cache.get("id", id -> slowLoad(transaction)),
+                        cache.get("id", id -> slowLoad(transaction))))
+                .expectNext(transaction, transaction)
+                .verifyComplete();
+        StepVerifier.create(cache.get("id", id -> slowLoad(transaction)))
+                .expectNext(transaction)
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    public void testLoadRunsWithTheContextOfTheCaller() {
+        TransactionCache cache = new TransactionCache(enabled(), meterRegistry);
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+
+        StepVerifier.create(cache.get("id", id -> Mono.deferContextual(context -> Mono.just(transaction)
+                                .filter(loaded -> "deadline".equals(context.getOrDefault("request", null)))))
+                        .contextWrite(context -> context.put("request", "deadline")))
+                .expectNext(transaction)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testMissingTransactionIsNotCached() {
+        TransactionCache cache = new TransactionCache(enabled(), meterRegistry);
+
+        StepVerifier.create(cache.get("id", id -> countLoad(Mono.empty())))
+                .verifyComplete();
+        StepVerifier.create(cache.get("id", id -> countLoad(Mono.empty())))
+                .verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testPutAndInvalidate() {
+        TransactionCache cache = new TransactionCache(enabled(), meterRegistry);
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        transaction.setId(UUID.randomUUID().toString());
+
+        cache.put(transaction);
+        StepVerifier.create(cache.get(transaction.getId(), id -> countLoad(Mono.empty())))
+                .expectNext(transaction)
+                .verifyComplete();
+        cache.invalidate(transaction.getId());
+        StepVerifier.create(cache.get(transaction.getId(), id -> countLoad(Mono.empty())))
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testDisabledCacheAlwaysLoads() {
+        TransactionCache cache = new TransactionCache(new TransactionProperties.Cache(), meterRegistry);
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+
+        cache.get("id", id -> countLoad(Mono.just(transaction))).block();
+        cache.get("id", id -> countLoad(Mono.just(transaction))).block();
+
+        assertEquals(2, loads.get());
+    }
+
+    private TransactionProperties.Cache enabled() {
+        TransactionProperties.Cache properties = new TransactionProperties.Cache();
+        properties.setEnabled(true);
+        return properties;
+    }
+
+    private Mono<Transaction> slowLoad(Transaction transaction) {
+        return countLoad(Mono.just(transaction).delayElement(Duration.ofMillis(50)));
+    }
+
+    private Mono<Transaction> countLoad(Mono<Transaction> result) {
+        loads.incrementAndGet();
+        return result;
+    }
+}
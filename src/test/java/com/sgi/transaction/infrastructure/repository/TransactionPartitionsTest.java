@@ -0,0 +1,113 @@
+package com.sgi.transaction.infrastructure.repository;
+
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.repository.impl.TransactionPartitions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test class for the {@link TransactionPartitions}.
+ * Verifies the routing of ids and periods to monthly collections and the creation of partition indexes.
+ */
+public class TransactionPartitionsTest {
+
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+
+    @Test
+    public void testEverythingIsInOneCollectionWhenDisabled() {
+        TransactionPartitions partitions = new TransactionPartitions(mongoTemplate, new TransactionProperties());
+
+        assertEquals(Optional.of("transaction"), partitions.forId("not-an-object-id"));
+        StepVerifier.create(partitions.between(Instant.parse("2024-01-01T00:00:00Z"), null))
+                .expectNext("transaction")
+                .verifyComplete();
+    }
+
+    @Test
+    public void testIdCarriesThePartitionOfTheCreatedDate() {
+        TransactionPartitions partitions = enabled();
+        Transaction transaction = Transaction.builder().createdDate(Instant.parse("2024-03-31T23:59:59.999Z")).build();
+        transaction.setId(partitions.newId(transaction));
+
+        assertEquals("transaction_202403", partitions.forTransaction(transaction));
+        assertEquals(Optional.of("transaction_202403"), partitions.forId(transaction.getId()));
+        assertEquals(Optional.empty(), partitions.forId("not-an-object-id"));
+    }
+
+    @Test
+    public void testPeriodIsRoutedToOverlappingPartitionsNewestFirst() {
+        when(mongoTemplate.getCollectionNames()).thenReturn(Flux.just("transaction_202401", "daily_balance", "transaction_202403",
+                "transaction", "transaction_202402", "transaction_202404"));
+        TransactionPartitions partitions = enabled();
+
+        StepVerifier.create(partitions.between(Instant.parse("2024-02-15T00:00:00Z"), Instant.parse("2024-04-01T00:00:00Z")))
+                .expectNext("transaction_202403", "transaction_202402")
+                .verifyComplete();
+        StepVerifier.create(partitions.all())
+                .expectNext("transaction_202404", "transaction_202403", "transaction_202402", "transaction_202401")
+                .verifyComplete();
+    }
+
+    @Test
+    public void testIndexesAreCreatedOncePerPartition() {
+        ReactiveIndexOperations indexOperations = mock(ReactiveIndexOperations.class);
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        when(mongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        when(mongoTemplate.indexOps("transaction_202403")).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class))).thenReturn(Mono.just("index"));
+        TransactionPartitions partitions = enabled();
+
+        StepVerifier.create(partitions.ensureIndexes("transaction_202403").then(partitions.ensureIndexes("transaction_202403")))
+                .verifyComplete();
+        verify(indexOperations, times(5)).ensureIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    public void testPartitionsAreListedAgainOnlyOnceNewOnesAreCreated() {
+        ReactiveIndexOperations indexOperations = mock(ReactiveIndexOperations.class);
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        when(mongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        when(mongoTemplate.indexOps("transaction_202402")).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class))).thenReturn(Mono.just("index"));
+        when(mongoTemplate.getCollectionNames())
+                .thenReturn(Flux.just("transaction_202401"))
+                .thenReturn(Flux.just("transaction_202401", "transaction_202402"));
+        TransactionPartitions partitions = enabled();
+
+        StepVerifier.create(partitions.all()).expectNext("transaction_202401").verifyComplete();
+        StepVerifier.create(partitions.all()).expectNext("transaction_202401").verifyComplete();
+        StepVerifier.create(partitions.ensureIndexes("transaction_202402")).verifyComplete();
+        StepVerifier.create(partitions.all()).expectNext("transaction_202402", "transaction_202401").verifyComplete();
+
+        verify(mongoTemplate, times(2)).getCollectionNames();
+    }
+
+    private TransactionPartitions enabled() {
+        TransactionProperties properties = new TransactionProperties();
+        properties.getPartitioning().setEnabled(true);
+        return new TransactionPartitions(mongoTemplate, properties);
+    }
+}
@@ -1,31 +1,78 @@
 package com.sgi.transaction.infrastructure.repository;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import com.sgi.transaction.domain.model.CommissionTotals;
+import com.sgi.transaction.domain.model.DailyBalance;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.domain.model.TransactionCursor;
+import com.sgi.transaction.domain.model.TransactionFields;
+import com.sgi.transaction.domain.model.TransactionFilter;
 import com.sgi.transaction.helper.FactoryTest;
+import com.sgi.transaction.infrastructure.admission.Deadline;
+import com.sgi.transaction.infrastructure.config.TransactionProperties;
+import com.sgi.transaction.infrastructure.dto.Granularity;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
 import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.exception.CustomException;
 import com.sgi.transaction.infrastructure.mapper.TransactionMapper;
 import com.sgi.transaction.infrastructure.repository.impl.TransactionRepositoryImpl;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
 
 /**
  * Unit test class for the {@link TransactionRepositoryImpl} repository.
@@ -36,40 +83,156 @@ import static org.mockito.Mockito.eq;
 @ExtendWith(MockitoExtension.class)
 public class TransactionRepositoryImplTest {
 
+    private static final String COLLECTION = "transaction";
+
     @InjectMocks
     private TransactionRepositoryImpl transactionRepository;
 
     @Mock
-    private TransactionRepositoryJpa repositoryJpa;
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Spy
+    private TransactionProperties properties = new TransactionProperties();
 
     @Mock
-    private ReactiveMongoTemplate mongoTemplate;
+    private MeterRegistry meterRegistry;
 
     @Test
     public void testSave() {
         Transaction transaction = FactoryTest.toFactoryEntityTransaction();
-        TransactionResponse transactionResponse = TransactionMapper.INSTANCE.toTransactionResponse(transaction);
-        when(repositoryJpa.save(transaction)).thenReturn(Mono.just(transaction));
+        when(mongoTemplate.save(transaction, COLLECTION)).thenReturn(Mono.just(transaction));
         Mono<TransactionResponse> result = transactionRepository.save(transaction);
         StepVerifier.create(result)
-                .expectNext(transactionResponse)
+                .expectNextMatches(response -> ObjectId.isValid(response.getId())
+                        && response.equals(TransactionMapper.INSTANCE.toTransactionResponse(transaction)))
                 .verifyComplete();
 
-        verify(repositoryJpa, times(1)).save(transaction);
+        verify(mongoTemplate, times(1)).save(transaction, COLLECTION);
+    }
+
+    @Test
+    public void testSaveCoalescesNewTransactions() {
+        TransactionProperties coalescing = new TransactionProperties();
+        coalescing.getIngest().setCoalescing(true);
+        coalescing.getIngest().setMaxBatchSize(2);
+        coalescing.getIngest().setMaxLatency(Duration.ofSeconds(5));
+        TransactionRepositoryImpl repository = new TransactionRepositoryImpl(mongoTemplate, coalescing, new SimpleMeterRegistry());
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Transaction.class, COLLECTION)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of())));
+
+        Flux<TransactionResponse> result = Flux.merge(
+                repository.save(FactoryTest.toFactoryEntityTransaction()),
+                repository.save(FactoryTest.toFactoryEntityTransaction()));
+
+        StepVerifier.create(result)
+                .expectNextCount(2)
+                .verifyComplete();
+        verify(bulkOperations, times(1)).insert(anyList());
+        verify(mongoTemplate, never()).save(any(Transaction.class), anyString());
+        repository.close();
+    }
+
+    @Test
+    public void testInsertAll() {
+        Transaction transaction1 = FactoryTest.toFactoryEntityTransaction();
+        Transaction transaction2 = FactoryTest.toFactoryEntityTransaction();
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Transaction.class, COLLECTION)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of())));
+
+        Flux<TransactionBatchResult> result = transactionRepository.insertAll(List.of(transaction1, transaction2));
+
+        StepVerifier.create(result)
+                .expectNextMatches(item -> item.getIndex() == 0 && item.getTransaction().getId().equals(transaction1.getId()))
+                .expectNextMatches(item -> item.getIndex() == 1 && item.getStatus() == TransactionBatchResult.StatusEnum.CREATED)
+                .verifyComplete();
+        assertNotNull(transaction2.getId());
+    }
+
+    @Test
+    public void testInsertAllReportsFailedItems() {
+        Transaction transaction1 = FactoryTest.toFactoryEntityTransaction();
+        Transaction transaction2 = FactoryTest.toFactoryEntityTransaction();
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        MongoBulkWriteException exception = new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)),
+                null, new ServerAddress(), Set.of());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Transaction.class, COLLECTION)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.error(exception));
+
+        Flux<TransactionBatchResult> result = transactionRepository.insertAll(List.of(transaction1, transaction2));
+
+        StepVerifier.create(result)
+                .expectNextMatches(item -> item.getStatus() == TransactionBatchResult.StatusEnum.CREATED)
+                .expectNextMatches(item -> item.getStatus() == TransactionBatchResult.StatusEnum.FAILED
+                        && "TRAN-003".equals(item.getError().getCode()))
+                .verifyComplete();
     }
 
     @Test
     public void testFindById() {
         String transactionId = UUID.randomUUID().toString();
         Transaction transaction = FactoryTest.toFactoryEntityTransaction();
-        when(repositoryJpa.findById(transactionId))
+        when(mongoTemplate.findById(transactionId, Transaction.class, COLLECTION))
                 .thenReturn(Mono.just(transaction));
         Mono<Transaction> result = transactionRepository.findById(transactionId);
         StepVerifier.create(result)
                 .expectNext(transaction)
                 .verifyComplete();
 
-        verify(repositoryJpa, times(1)).findById(transactionId);
+        verify(mongoTemplate, times(1)).findById(transactionId, Transaction.class, COLLECTION);
+    }
+
+    @Test
+    public void testFindByIdIsServedFromCacheAfterSave() {
+        TransactionProperties cached = new TransactionProperties();
+        cached.getCache().setEnabled(true);
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        transaction.setId(UUID.randomUUID().toString());
+        when(mongoTemplate.save(transaction, COLLECTION)).thenReturn(Mono.just(transaction));
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Transaction.class), eq(COLLECTION))).thenReturn(Mono.just(transaction));
+        when(mongoTemplate.findById(transaction.getId(), Transaction.class, COLLECTION)).thenReturn(Mono.empty());
+        TransactionRepositoryImpl repository = new TransactionRepositoryImpl(mongoTemplate, cached, new SimpleMeterRegistry());
+
+        StepVerifier.create(repository.save(transaction).then(repository.findById(transaction.getId())))
+                .expectNext(transaction)
+                .verifyComplete();
+        StepVerifier.create(repository.deleteById(transaction.getId()).then(repository.findById(transaction.getId())))
+                .verifyComplete();
+        verify(mongoTemplate, times(1)).findById(transaction.getId(), Transaction.class, COLLECTION);
+    }
+
+    @Test
+    public void testFindByIdWithFieldsReadsProjection() {
+        String transactionId = UUID.randomUUID().toString();
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findOne(queryCaptor.capture(), eq(Transaction.class), eq(COLLECTION))).thenReturn(Mono.just(transaction));
+
+        StepVerifier.create(transactionRepository.findById(transactionId, TransactionFields.parse("summary")))
+                .expectNext(transaction)
+                .verifyComplete();
+        Document projection = queryCaptor.getValue().getFieldsObject();
+        assertEquals(Set.of("id", "type", "amount", "createdDate"), projection.keySet());
+        verify(mongoTemplate, never()).findById(transactionId, Transaction.class, COLLECTION);
+    }
+
+    @Test
+    public void testFindAllWithFieldsLeavesOtherFieldsUnset() {
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        transaction.setBalance(null);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Transaction.class), eq(COLLECTION))).thenReturn(Flux.just(transaction));
+
+        StepVerifier.create(transactionRepository.findAll(null, null, 1, 10, TransactionFields.parse("amount")))
+                .expectNextMatches(response -> response.getBalance() == null)
+                .verifyComplete();
+        assertEquals(1, queryCaptor.getValue().getFieldsObject().get("amount"));
     }
 
     @Test
@@ -79,40 +242,155 @@ public class TransactionRepositoryImplTest {
         Transaction transaction1 = FactoryTest.toFactoryEntityTransaction();
         Transaction transaction2 = FactoryTest.toFactoryEntityTransaction();
 
-        when(mongoTemplate.find(any(Query.class), eq(Transaction.class)))
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class), eq(COLLECTION)))
                 .thenReturn(Flux.just(transaction1, transaction2));
 
-        Flux<TransactionResponse> result = transactionRepository.findAll(productId, cardId, 1, 10);
+        Flux<TransactionResponse> result = transactionRepository.findAll(productId, cardId, 1, 10, TransactionFields.ALL);
         result.collectList().subscribe(responses -> {
             assertNotNull(responses);
             assertEquals(2, responses.size());
         });
-        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Transaction.class));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Transaction.class), eq(COLLECTION));
+    }
+
+    @Test
+    public void testFindAllWithCursor() {
+        String productId = UUID.randomUUID().toString();
+        TransactionCursor cursor = new TransactionCursor(Instant.now(), UUID.randomUUID().toString());
+        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Transaction.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(transaction));
+
+        Flux<TransactionResponse> result = transactionRepository.findAll(productId, null, cursor, 10, TransactionFields.ALL);
+        StepVerifier.create(result)
+                .expectNextCount(1)
+                .verifyComplete();
+        Query query = queryCaptor.getValue();
+        assertEquals(10, query.getLimit());
+        assertEquals(0L, query.getSkip());
+        assertNotNull(query.getQueryObject().get("$and"));
+    }
+
+    @Test
+    public void testFindAllPagesAcrossPartitionsNewestFirst() {
+        TransactionProperties partitioned = new TransactionProperties();
+        partitioned.getPartitioning().setEnabled(true);
+        Transaction march = FactoryTest.toFactoryEntityTransaction();
+        march.setId("march");
+        Transaction february = FactoryTest.toFactoryEntityTransaction();
+        february.setId("february");
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.getCollectionNames()).thenReturn(Flux.just("transaction_202402", "transaction_202403", "transaction_202401"));
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Transaction.class), eq("transaction_202403"))).thenReturn(Flux.just(march));
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class), eq("transaction_202402"))).thenReturn(Flux.just(february));
+        TransactionRepositoryImpl repository = new TransactionRepositoryImpl(mongoTemplate, partitioned, new SimpleMeterRegistry());
+
+        StepVerifier.create(repository.findAll(null, null, 2, 1, TransactionFields.ALL))
+                .expectNextMatches(response -> "february".equals(response.getId()))
+                .verifyComplete();
+        assertEquals(2, queryCaptor.getValue().getLimit());
+        assertEquals(0L, queryCaptor.getValue().getSkip());
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Transaction.class), eq("transaction_202401"));
     }
 
 
 
     @Test
-    public void testDelete() {
+    public void testPatchSetsOnlyProvidedFieldsWithPrecondition() {
+        String id = UUID.randomUUID().toString();
+        Transaction previous = FactoryTest.toFactoryEntityTransaction();
+        Transaction changes = Transaction.builder().status("CANCELLED").balance(BigDecimal.ONE).build();
+        Instant expectedUpdatedDate = Instant.parse("2024-05-01T10:15:30.123456Z");
+        when(mongoTemplate.getConverter()).thenReturn(mongoConverter());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Transaction.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(previous));
+
+        StepVerifier.create(transactionRepository.patch(id, changes, expectedUpdatedDate))
+                .expectNext(previous)
+                .verifyComplete();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), options.capture(), eq(Transaction.class), eq(COLLECTION));
+        assertEquals(id, query.getValue().getQueryObject().get("_id"));
+        assertEquals(Instant.parse("2024-05-01T10:15:30.123Z"), query.getValue().getQueryObject().get("updatedDate"));
+        org.bson.Document set = (org.bson.Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(Set.of("status", "balance"), set.keySet());
+        assertFalse(options.getValue().isReturnNew());
+    }
+
+    @Test
+    public void testDeleteById() {
         Transaction transaction = FactoryTest.toFactoryEntityTransaction();
         transaction.setId(UUID.randomUUID().toString());
-        when(repositoryJpa.delete(transaction)).thenReturn(Mono.empty());
-        Mono<Void> result = transactionRepository.delete(transaction);
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Transaction.class), eq(COLLECTION))).thenReturn(Mono.just(transaction));
+        Mono<Transaction> result = transactionRepository.deleteById(transaction.getId());
         StepVerifier.create(result)
+                .expectNext(transaction)
                 .verifyComplete();
-        verify(repositoryJpa, times(1)).delete(transaction);
+        verify(mongoTemplate, times(1)).findAndRemove(Query.query(Criteria.where("_id").is(transaction.getId())), Transaction.class, COLLECTION);
+    }
+
+    @Test
+    public void testDeleteAllByFilter() {
+        TransactionFilter filter = TransactionFilter.builder()
+                .productId("product")
+                .status("FAILED")
+                .from(LocalDate.of(2024, 1, 1))
+                .build();
+        properties.getBatch().setDeleteChunkSize(2);
+        Transaction first = Transaction.builder().id("first").build();
+        Transaction second = Transaction.builder().id("second").build();
+        Transaction third = Transaction.builder().id("third").build();
+        ArgumentCaptor<Query> findCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Query> removeCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(findCaptor.capture(), eq(Transaction.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(first, second))
+                .thenReturn(Flux.just(third));
+        when(mongoTemplate.remove(removeCaptor.capture(), eq(Transaction.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(2)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        StepVerifier.create(transactionRepository.deleteAll(filter))
+                .expectNext(List.of(first, second))
+                .expectNext(List.of(third))
+                .verifyComplete();
+
+        Query find = findCaptor.getValue();
+        assertEquals(2, find.getLimit());
+        assertEquals("product", find.getQueryObject().get("productId"));
+        assertEquals("FAILED", find.getQueryObject().get("status"));
+        assertEquals(new org.bson.Document("$gte", Instant.parse("2024-01-01T00:00:00Z")), find.getQueryObject().get("createdDate"));
+        assertFalse(find.getQueryObject().containsKey("cardId"));
+        assertEquals(new org.bson.Document("$in", List.of("first", "second")), removeCaptor.getAllValues().get(0).getQueryObject().get("_id"));
+        assertEquals(new org.bson.Document("$in", List.of("third")), removeCaptor.getAllValues().get(1).getQueryObject().get("_id"));
+    }
+
+    @Test
+    public void testDeleteAllWithoutMatchesRemovesNothing() {
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class), eq(COLLECTION))).thenReturn(Flux.empty());
+
+        StepVerifier.create(transactionRepository.deleteAll(TransactionFilter.builder().status("FAILED").build()))
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(Transaction.class), anyString());
     }
 
     @Test
     public void testGetTransactionsByAccountId() {
         String productId = UUID.randomUUID().toString();
         Transaction transaction = FactoryTest.toFactoryEntityTransaction();
-        when(repositoryJpa.findAllByProductId(productId)).thenReturn(Flux.just(transaction));
-        Flux<TransactionResponse> result = transactionRepository.getTransactionsByAccountId(productId);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Transaction.class), eq(COLLECTION))).thenReturn(Flux.just(transaction));
+        Flux<TransactionResponse> result = transactionRepository.getTransactionsByAccountId(productId, TransactionFields.ALL);
         StepVerifier.create(result)
                 .expectNext(TransactionMapper.INSTANCE.toTransactionResponse(transaction))
                 .verifyComplete();
-        verify(repositoryJpa, times(1)).findAllByProductId(productId);
+        assertEquals(productId, queryCaptor.getValue().getQueryObject().get("productId"));
+        assertEquals(500, queryCaptor.getValue().getMeta().getCursorBatchSize());
     }
 
     @Test
@@ -121,27 +399,124 @@ public class TransactionRepositoryImplTest {
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
         Transaction transaction = FactoryTest.toFactoryEntityTransaction();
-        when(repositoryJpa.findCommissionsByProductAndDateRange(productId, startDate, endDate)).thenReturn(Flux.just(transaction));
-        Flux<TransactionResponse> result = transactionRepository.getCommissionsByProductAndPeriod(productId, startDate, endDate);
+        properties.getStreaming().setCursorBatchSize(50);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Transaction.class), eq(COLLECTION))).thenReturn(Flux.just(transaction));
+        Flux<TransactionResponse> result = transactionRepository.getCommissionsByProductAndPeriod(productId, startDate, endDate, TransactionFields.ALL);
         StepVerifier.create(result)
                 .expectNext(TransactionMapper.INSTANCE.toTransactionResponse(transaction))
                 .verifyComplete();
-        verify(repositoryJpa, times(1)).findCommissionsByProductAndDateRange(productId, startDate, endDate);
+        Query query = queryCaptor.getValue();
+        assertEquals(productId, query.getQueryObject().get("productId"));
+        assertNotNull(query.getQueryObject().get("commission"));
+        assertNotNull(query.getQueryObject().get("createdDate"));
+        assertEquals(50, query.getMeta().getCursorBatchSize());
+    }
+
+    @Test
+    public void testQueriesAreBoundedByTheDeadlineOfTheRequest() {
+        String productId = UUID.randomUUID().toString();
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Transaction.class), eq(COLLECTION))).thenReturn(Flux.never());
+
+        StepVerifier.create(transactionRepository.getCommissionsByProductAndPeriod(productId, LocalDate.now(), LocalDate.now(), TransactionFields.ALL)
+                        .contextWrite(Deadline.after(Duration.ofMillis(200))::store))
+                .expectErrorMatches(ex -> ex instanceof CustomException custom && custom.getStatus() == 504)
+                .verify(Duration.ofSeconds(5));
+
+        long maxTimeMsec = queryCaptor.getValue().getMeta().getMaxTimeMsec();
+        assertTrue(maxTimeMsec > 0 && maxTimeMsec <= 200);
+    }
+
+    @Test
+    public void testAggregationIsBoundedByTheDeadlineOfTheRequest() {
+        ArgumentCaptor<TypedAggregation> aggregationCaptor = ArgumentCaptor.forClass(TypedAggregation.class);
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq(COLLECTION), eq(DailyBalance.class))).thenReturn(Flux.empty());
+
+        StepVerifier.create(transactionRepository.aggregateDailyBalancesForClient("client", LocalDate.now(), LocalDate.now())
+                        .contextWrite(Deadline.after(Duration.ofSeconds(5))::store))
+                .verifyComplete();
+
+        Duration maxTime = aggregationCaptor.getValue().getOptions().getMaxTime();
+        assertTrue(!maxTime.isZero() && maxTime.compareTo(Duration.ofSeconds(5)) <= 0);
     }
 
+    @Test
+    public void testReportReadsAreRoutedToSecondaries() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Transaction.class), eq(COLLECTION))).thenReturn(Flux.empty());
+        ArgumentCaptor<TypedAggregation> aggregationCaptor = ArgumentCaptor.forClass(TypedAggregation.class);
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq(COLLECTION), eq(DailyBalance.class))).thenReturn(Flux.empty());
+
+        StepVerifier.create(transactionRepository.getCommissionsByProductAndPeriod("product", LocalDate.now(), LocalDate.now(), TransactionFields.ALL))
+                .verifyComplete();
+        StepVerifier.create(transactionRepository.aggregateDailyBalancesForClient("client", LocalDate.now(), LocalDate.now()))
+                .verifyComplete();
+
+        ReadPreference secondary = ReadPreference.secondaryPreferred(90, TimeUnit.SECONDS);
+        assertEquals(secondary, queryCaptor.getValue().getReadPreference());
+        assertEquals(secondary, aggregationCaptor.getValue().getOptions().getReadPreference());
+    }
 
     @Test
-    public void  testGetDailyAverageBalancesForClient() {
+    public void testAggregateDailyBalancesForClient() {
         String clientId = UUID.randomUUID().toString();
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now();
-        Transaction transaction = FactoryTest.toFactoryEntityTransaction();
-        when(repositoryJpa.findByClientIdAndCreatedDateBetween(clientId, startDate, endDate)).thenReturn(Flux.just(transaction));
-        Flux<TransactionResponse> result = transactionRepository.getDailyAverageBalancesForClient(clientId, startDate, endDate);
+        DailyBalance dailyBalance = DailyBalance.builder().productId(UUID.randomUUID().toString()).build();
+        ArgumentCaptor<TypedAggregation> aggregationCaptor = ArgumentCaptor.forClass(TypedAggregation.class);
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq(COLLECTION), eq(DailyBalance.class))).thenReturn(Flux.just(dailyBalance));
+        Flux<DailyBalance> result = transactionRepository.aggregateDailyBalancesForClient(clientId, startDate, endDate);
         StepVerifier.create(result)
-                .expectNext(TransactionMapper.INSTANCE.toTransactionResponse(transaction))
+                .expectNext(dailyBalance)
+                .verifyComplete();
+        String pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).toString();
+        assertTrue(pipeline.contains("$dateTrunc"));
+        assertTrue(pipeline.contains("timezone=UTC"));
+    }
+
+    @Test
+    public void testAggregateDailyBalancesUnionsOverlappingPartitions() {
+        TransactionProperties partitioned = new TransactionProperties();
+        partitioned.getPartitioning().setEnabled(true);
+        TransactionRepositoryImpl repository = new TransactionRepositoryImpl(mongoTemplate, partitioned, new SimpleMeterRegistry());
+        ArgumentCaptor<TypedAggregation> aggregationCaptor = ArgumentCaptor.forClass(TypedAggregation.class);
+        when(mongoTemplate.getCollectionNames()).thenReturn(Flux.just("transaction_202401", "transaction_202402", "transaction_202403"));
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq("transaction_202402"), eq(DailyBalance.class))).thenReturn(Flux.empty());
+
+        StepVerifier.create(repository.aggregateDailyBalancesForClient("client", LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 10)))
                 .verifyComplete();
-        verify(repositoryJpa, times(1)).findByClientIdAndCreatedDateBetween(clientId, startDate, endDate);
+        String pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).toString();
+        assertTrue(pipeline.contains("$unionWith"));
+        assertTrue(pipeline.contains("transaction_202401"));
+        assertFalse(pipeline.contains("transaction_202403"));
+    }
+
+    private MappingMongoConverter mongoConverter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
     }
 
+    @Test
+    public void testAggregateCommissionsBucketsInTheDatabase() {
+        CommissionTotals totals = CommissionTotals.builder().period("2024-02-26").sum(new BigDecimal("7.50")).count(3L).build();
+        ArgumentCaptor<TypedAggregation> aggregationCaptor = ArgumentCaptor.forClass(TypedAggregation.class);
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq(COLLECTION), eq(CommissionTotals.class))).thenReturn(Flux.just(totals));
+
+        StepVerifier.create(transactionRepository.aggregateCommissions("product", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31),
+                        Granularity.WEEK))
+                .expectNext(totals)
+                .verifyComplete();
+        String pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).toString();
+        assertTrue(pipeline.contains("$dateTrunc"));
+        assertTrue(pipeline.contains("unit=week"));
+        assertTrue(pipeline.contains("startOfWeek=monday"));
+        assertTrue(pipeline.contains("$group"));
+        assertTrue(pipeline.contains("commission=Document{{$ne=null, $gt=0}}"));
+    }
 }
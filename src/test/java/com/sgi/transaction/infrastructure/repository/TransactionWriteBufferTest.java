@@ -0,0 +1,150 @@
+package com.sgi.transaction.infrastructure.repository;
+
+import com.sgi.transaction.domain.model.Transaction;
+import com.sgi.transaction.helper.FactoryTest;
+import com.sgi.transaction.infrastructure.dto.TransactionBatchResult;
+import com.sgi.transaction.infrastructure.dto.TransactionResponse;
+import com.sgi.transaction.infrastructure.exception.CustomException;
+import com.sgi.transaction.infrastructure.mapper.TransactionMapper;
+import com.sgi.transaction.infrastructure.repository.impl.TransactionWriteBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit test class for the {@link TransactionWriteBuffer}.
+ * Verifies that concurrent inserts are flushed together and that each caller gets its own outcome.
+ */
+public class TransactionWriteBufferTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<Integer> flushedSizes = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void testFlushWhenBufferIsFull() {
+        TransactionWriteBuffer buffer = new TransactionWriteBuffer(this::createAll, 3, Duration.ofSeconds(10), 1, meterRegistry);
+
+        StepVerifier.create(Flux.merge(submit(buffer), submit(buffer), submit(buffer)))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        assertEquals(List.of(3), flushedSizes);
+        assertEquals(1.0, meterRegistry.get("transaction.write.buffer.flushes").tag("reason", "size").counter().count());
+        assertEquals(3.0, meterRegistry.get("transaction.write.buffer.batch.size").summary().totalAmount());
+        assertEquals(0.0, meterRegistry.get("transaction.write.buffer.pending").gauge().value());
+        buffer.close();
+    }
+
+    @Test
+    public void testFlushWhenLatencyBudgetExpires() {
+        TransactionWriteBuffer buffer = new TransactionWriteBuffer(this::createAll, 100, Duration.ofMillis(200), 1, meterRegistry);
+
+        StepVerifier.create(Flux.merge(submit(buffer), submit(buffer)))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(List.of(2), flushedSizes);
+        assertEquals(1.0, meterRegistry.get("transaction.write.buffer.flushes").tag("reason", "latency").counter().count());
+        buffer.close();
+    }
+
+    @Test
+    public void testFailedItemOnlyFailsItsCaller() {
+        TransactionWriteBuffer buffer = new TransactionWriteBuffer(transactions -> Flux.just(
+                new TransactionBatchResult(0, TransactionBatchResult.StatusEnum.CREATED)
+                        .transaction(TransactionMapper.INSTANCE.toTransactionResponse(transactions.get(0))),
+                new TransactionBatchResult(1, TransactionBatchResult.StatusEnum.FAILED)),
+                2, Duration.ofSeconds(10), 1, meterRegistry);
+
+        Mono<TransactionResponse> first = submit(buffer).cache();
+        Mono<TransactionResponse> second = submit(buffer).cache();
+        first.subscribe(response -> { }, error -> { });
+        second.subscribe(response -> { }, error -> { });
+
+        StepVerifier.create(first)
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(second)
+                .expectError(CustomException.class)
+                .verify();
+        buffer.close();
+    }
+
+    @Test
+    public void testConcurrentSubmitsAreAllWritten() {
+        TransactionWriteBuffer buffer = new TransactionWriteBuffer(this::createAll, 50, Duration.ofMillis(200), 4, meterRegistry);
+
+        StepVerifier.create(Flux.range(0, 1000)
+                        .parallel(8)
+                        .runOn(Schedulers.parallel())
+                        .flatMap(index -> submit(buffer))
+                        .sequential())
+                .expectNextCount(1000)
+                .verifyComplete();
+
+        assertEquals(1000, flushedSizes.stream().mapToInt(Integer::intValue).sum());
+        buffer.close();
+    }
+
+    @Test
+    public void testSubmitAfterCloseFails() {
+        TransactionWriteBuffer buffer = new TransactionWriteBuffer(this::createAll, 10, Duration.ofMillis(200), 1, meterRegistry);
+        buffer.close();
+
+        StepVerifier.create(submit(buffer))
+                .expectError(CustomException.class)
+                .verify();
+    }
+
+    @Test
+    public void testWriteErrorFailsWholeBatch() {
+        TransactionWriteBuffer buffer = new TransactionWriteBuffer(transactions -> Flux.error(new IllegalStateException("down")),
+                1, Duration.ofSeconds(10), 1, meterRegistry);
+
+        StepVerifier.create(submit(buffer))
+                .expectError(IllegalStateException.class)
+                .verify();
+        buffer.close();
+    }
+
+    @Test
+    public void testFlusherThrowingFailsOnlyItsBatch() {
+        AtomicInteger flushes = new AtomicInteger();
+        TransactionWriteBuffer buffer = new TransactionWriteBuffer(transactions -> {
+            if (flushes.getAndIncrement() == 0) {
+                throw new IllegalStateException("down");
+            }
+            return createAll(transactions);
+        }, 1, Duration.ofSeconds(10), 1, meterRegistry);
+
+        StepVerifier.create(submit(buffer))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(submit(buffer))
+                .expectNextCount(1)
+                .verifyComplete();
+        buffer.close();
+    }
+
+    private Mono<TransactionResponse> submit(TransactionWriteBuffer buffer) {
+        return buffer.submit(FactoryTest.toFactoryEntityTransaction());
+    }
+
+    private Flux<TransactionBatchResult> createAll(List<Transaction> transactions) {
+        flushedSizes.add(transactions.size());
+        return Flux.range(0, transactions.size())
+                .map(index -> new TransactionBatchResult(index, TransactionBatchResult.StatusEnum.CREATED)
+                        .transaction(TransactionMapper.INSTANCE.toTransactionResponse(transactions.get(index))));
+    }
+}